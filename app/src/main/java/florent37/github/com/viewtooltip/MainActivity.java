@@ -1,9 +1,6 @@
 package florent37.github.com.viewtooltip;
 
 import android.graphics.Color;
-import android.graphics.LinearGradient;
-import android.graphics.Paint;
-import android.graphics.Shader;
 import android.os.Bundle;
 
 import androidx.annotation.ColorInt;
@@ -43,7 +40,7 @@ public class MainActivity extends AppCompatActivity {
                         .text(getResources().getString(R.string.lorem))
                         .clickToHide(true)
                         .autoHide(false, 0)
-                        .color(createPaint())
+                        .gradient(BLUE, GREEN)
                         .animation(new ViewTooltip.FadeTooltipAnimation(500))
                         .onDisplay(new ViewTooltip.ListenerDisplay() {
                             @Override
@@ -129,11 +126,4 @@ public class MainActivity extends AppCompatActivity {
             }
         });
     }
-
-    private Paint createPaint() {
-        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        paint.setShader(new LinearGradient(0, 0, 0, 600, BLUE, GREEN, Shader.TileMode.CLAMP));
-        paint.setStyle(Paint.Style.FILL);
-        return paint;
-    }
 }
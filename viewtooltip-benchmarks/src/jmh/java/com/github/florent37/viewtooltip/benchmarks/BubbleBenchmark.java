@@ -0,0 +1,70 @@
+package com.github.florent37.viewtooltip.benchmarks;
+
+import com.github.florent37.viewtooltip.layout.PathSink;
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Bubble outline built by TooltipView.drawBubble, recorded into a reused buffer instead of an android.graphics.Path
+ */
+@State(Scope.Thread)
+public class BubbleBenchmark {
+
+    @Param({"LEFT", "RIGHT", "TOP", "BOTTOM"})
+    public String position;
+
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+    private final RecordingPathSink sink = new RecordingPathSink();
+
+    @Setup
+    public void setup() {
+        engine.setPosition(Positions.position(position));
+        engine.setMargin(10, 10, 10, 10);
+    }
+
+    @Benchmark
+    public int buildBubble() {
+        sink.reset();
+        engine.buildBubble(sink, 4, 4, 592, 232, 150);
+        return sink.size;
+    }
+
+    private static class RecordingPathSink implements PathSink {
+        private final float[] points = new float[64];
+        private int size;
+
+        void reset() {
+            size = 0;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            add(x1, y1);
+            add(x2, y2);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void add(float x, float y) {
+            points[size++] = x;
+            points[size++] = y;
+        }
+    }
+}
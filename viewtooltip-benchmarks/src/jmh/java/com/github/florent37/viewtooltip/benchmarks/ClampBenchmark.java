@@ -0,0 +1,46 @@
+package com.github.florent37.viewtooltip.benchmarks;
+
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Screen edge handling done by TooltipView.adjustSize : a 600px wide TOP tooltip on anchors touching each edge
+ */
+@State(Scope.Thread)
+public class ClampBenchmark {
+
+    @Param({"LEFT_EDGE", "MIDDLE", "RIGHT_EDGE"})
+    public String anchor;
+
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+    private int anchorLeft;
+    private int anchorRight;
+
+    @Setup
+    public void setup() {
+        engine.setPosition(TooltipLayoutEngine.TOP);
+        switch (anchor) {
+            case "LEFT_EDGE":
+                anchorLeft = 0;
+                break;
+            case "RIGHT_EDGE":
+                anchorLeft = 980;
+                break;
+            default:
+                anchorLeft = 490;
+                break;
+        }
+        anchorRight = anchorLeft + 100;
+    }
+
+    @Benchmark
+    public int clampAnchor() {
+        engine.clampAnchor(anchorLeft, anchorRight, 1080, 600);
+        return engine.getAnchorLeft() + engine.getAnchorRight();
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.florent37.viewtooltip.benchmarks;
+
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Placement of a tooltip next to an anchor in the middle of a 1080px wide container, for every Position x ALIGN
+ */
+@State(Scope.Thread)
+public class PlacementBenchmark {
+
+    @Param({"LEFT", "RIGHT", "TOP", "BOTTOM"})
+    public String position;
+
+    @Param({"START", "CENTER", "END"})
+    public String align;
+
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+
+    @Setup
+    public void setup() {
+        engine.setPosition(Positions.position(position));
+        engine.setDistanceWithView(8);
+    }
+
+    @Benchmark
+    public int place() {
+        //clampAnchor() may switch to CENTER, every iteration starts from the requested align
+        engine.setAlign(Positions.align(align));
+        engine.layout(400, 900, 680, 1000, 1080, 300, 120);
+        return engine.getX() + engine.getY();
+    }
+
+    @Benchmark
+    public int availableWidth() {
+        return engine.getAvailableWidth(400, 680, 1080);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.florent37.viewtooltip.benchmarks;
+
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
+
+final class Positions {
+
+    private Positions() {
+    }
+
+    static int position(String name) {
+        switch (name) {
+            case "LEFT":
+                return TooltipLayoutEngine.LEFT;
+            case "RIGHT":
+                return TooltipLayoutEngine.RIGHT;
+            case "TOP":
+                return TooltipLayoutEngine.TOP;
+            default:
+                return TooltipLayoutEngine.BOTTOM;
+        }
+    }
+
+    static int align(String name) {
+        switch (name) {
+            case "START":
+                return TooltipLayoutEngine.ALIGN_START;
+            case "END":
+                return TooltipLayoutEngine.ALIGN_END;
+            default:
+                return TooltipLayoutEngine.ALIGN_CENTER;
+        }
+    }
+}
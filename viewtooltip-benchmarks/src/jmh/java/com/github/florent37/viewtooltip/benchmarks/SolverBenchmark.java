@@ -0,0 +1,51 @@
+package com.github.florent37.viewtooltip.benchmarks;
+
+import com.github.florent37.viewtooltip.layout.PlacementSolver;
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * One frame of TooltipManager.solvePlacements : every tooltip of a 1080x1920 screen placed around the previous ones
+ */
+@State(Scope.Thread)
+public class SolverBenchmark {
+
+    @Param({"4", "16", "64"})
+    public int tooltips;
+
+    private final PlacementSolver solver = new PlacementSolver();
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+    private final int[] candidates = {
+            TooltipLayoutEngine.BOTTOM, TooltipLayoutEngine.TOP, TooltipLayoutEngine.RIGHT, TooltipLayoutEngine.LEFT
+    };
+    private int[] anchors;
+
+    @Setup
+    public void setup() {
+        final Random random = new Random(42);
+        anchors = new int[tooltips * 2];
+        for (int i = 0; i < tooltips; i++) {
+            anchors[i * 2] = random.nextInt(1080 - 100);
+            anchors[i * 2 + 1] = random.nextInt(1920 - 100);
+        }
+    }
+
+    @Benchmark
+    public int solve() {
+        solver.reset(1080, 1920);
+        int positions = 0;
+        for (int i = 0; i < tooltips; i++) {
+            final int left = anchors[i * 2];
+            final int top = anchors[i * 2 + 1];
+            positions += solver.solve(engine, left, top, left + 100, top + 100, 300, 120, candidates);
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.view.Gravity;
+
+/**
+ * Text of a flat tooltip, measured and drawn by the {@link ViewTooltip.TooltipView} itself
+ * instead of a child TextView
+ */
+class FlatText {
+
+    private final TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private CharSequence text = "";
+    private int gravity = Gravity.TOP | Gravity.START;
+
+    private int paddingLeft;
+    private int paddingTop;
+    private int paddingRight;
+    private int paddingBottom;
+
+    private StaticLayout layout;
+    private float desiredWidth = -1;
+
+    /**
+     * @param density of the display, as a TextView gives it to its paint
+     */
+    FlatText(float density) {
+        paint.density = density;
+    }
+
+    CharSequence getText() {
+        return text;
+    }
+
+    void setText(CharSequence text) {
+        this.text = text != null ? text : "";
+        invalidateLayout();
+    }
+
+    int getTextColor() {
+        return paint.getColor();
+    }
+
+    void setTextColor(int textColor) {
+        paint.setColor(textColor);
+    }
+
+    float getTextSize() {
+        return paint.getTextSize();
+    }
+
+    void setTextSize(float textSizePx) {
+        paint.setTextSize(textSizePx);
+        invalidateLayout();
+    }
+
+    Typeface getTypeface() {
+        return paint.getTypeface();
+    }
+
+    void setTypeface(Typeface typeface) {
+        paint.setTypeface(typeface);
+        invalidateLayout();
+    }
+
+    int getGravity() {
+        return gravity;
+    }
+
+    void setGravity(int gravity) {
+        this.gravity = gravity;
+        layout = null;
+    }
+
+    void setPadding(int left, int top, int right, int bottom) {
+        this.paddingLeft = left;
+        this.paddingTop = top;
+        this.paddingRight = right;
+        this.paddingBottom = bottom;
+    }
+
+    int getPaddingLeft() {
+        return paddingLeft;
+    }
+
+    int getPaddingTop() {
+        return paddingTop;
+    }
+
+    int getPaddingRight() {
+        return paddingRight;
+    }
+
+    int getPaddingBottom() {
+        return paddingBottom;
+    }
+
+    /**
+     * Lines are only broken again when the available width changes
+     */
+    void measure(int maxWidth) {
+        if (desiredWidth < 0) {
+            desiredWidth = Layout.getDesiredWidth(text, paint);
+        }
+        final int width = Math.max(0, Math.min((int) Math.ceil(desiredWidth), maxWidth - paddingLeft - paddingRight));
+        if (layout == null || layout.getWidth() != width) {
+            layout = createLayout(width);
+        }
+    }
+
+    /**
+     * Lines broken like the ones of a TextView with its default break strategy and hyphenation
+     */
+    @SuppressWarnings("deprecation")
+    private StaticLayout createLayout(int width) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width)
+                    .setAlignment(getAlignment())
+                    .setIncludePad(true)
+                    .setBreakStrategy(Layout.BREAK_STRATEGY_HIGH_QUALITY)
+                    .setHyphenationFrequency(Layout.HYPHENATION_FREQUENCY_NORMAL)
+                    .build();
+        }
+        return new StaticLayout(text, paint, width, getAlignment(), 1f, 0f, true);
+    }
+
+    int getWidth() {
+        return layout.getWidth() + paddingLeft + paddingRight;
+    }
+
+    int getHeight() {
+        return layout.getHeight() + paddingTop + paddingBottom;
+    }
+
+    /**
+     * @param height space given to the text, it is placed in it by the vertical gravity like in a TextView
+     */
+    void draw(Canvas canvas, float left, float top, int height) {
+        if (layout == null) {
+            return;
+        }
+        canvas.save();
+        canvas.translate(left + paddingLeft, top + paddingTop + getVerticalOffset(height));
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    private Layout.Alignment getAlignment() {
+        switch (gravity & Gravity.HORIZONTAL_GRAVITY_MASK) {
+            case Gravity.CENTER_HORIZONTAL:
+                return Layout.Alignment.ALIGN_CENTER;
+            case Gravity.RIGHT:
+                return Layout.Alignment.ALIGN_OPPOSITE;
+            default:
+                return Layout.Alignment.ALIGN_NORMAL;
+        }
+    }
+
+    private int getVerticalOffset(int height) {
+        final int space = height - getHeight();
+        if (space <= 0) {
+            return 0;
+        }
+        switch (gravity & Gravity.VERTICAL_GRAVITY_MASK) {
+            case Gravity.CENTER_VERTICAL:
+                return space / 2;
+            case Gravity.BOTTOM:
+                return space;
+            default:
+                return 0;
+        }
+    }
+
+    private void invalidateLayout() {
+        desiredWidth = -1;
+        layout = null;
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.florent37.viewtooltip;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.SpannedString;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the last texts parsed by Html.fromHtml, so that a tooltip showing the same text again skips the parsing
+ * <p>
+ * The cached texts are immutable copies, shared by every tooltip showing them
+ * <p>
+ * Bounded by a number of entries and by an estimation of their size, trimmed when the system is low on memory
+ */
+public class HtmlCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final int DEFAULT_MAX_BYTES = 256 * 1024;
+
+    private static final HtmlCache INSTANCE = new HtmlCache();
+
+    private final LinkedHashMap<String, Spanned> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private int maxBytes = DEFAULT_MAX_BYTES;
+    private int bytes;
+    private boolean enabled = true;
+    private boolean memoryCallbacksRegistered;
+
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                clear();
+            } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+                trimToBytes(getSizeInBytes() / 2);
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
+
+    private HtmlCache() {
+    }
+
+    public static HtmlCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return the parsed text, from the cache when this html was already parsed
+     */
+    public Spanned fromHtml(Context context, String html) {
+        if (!isEnabled()) {
+            return parse(html);
+        }
+        registerMemoryCallbacks(context);
+
+        synchronized (this) {
+            final Spanned cached = entries.get(html);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        //parsed outside of the lock, a concurrent parse of the same text only costs a duplicate
+        //fromHtml returns a mutable builder, the shared copy must not be modifiable by the tooltips using it
+        final Spanned spanned = new SpannedString(parse(html));
+        synchronized (this) {
+            final Spanned previous = entries.put(html, spanned);
+            if (previous != null) {
+                bytes -= sizeOf(html, previous);
+            }
+            bytes += sizeOf(html, spanned);
+            trim();
+        }
+        return spanned;
+    }
+
+    /**
+     * Html.fromHtml as before N, without the deprecated call on the versions having the flags
+     */
+    @SuppressWarnings("deprecation")
+    static Spanned parse(String html) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return Html.fromHtml(html, Html.FROM_HTML_MODE_LEGACY);
+        }
+        return Html.fromHtml(html);
+    }
+
+    public synchronized void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        trim();
+    }
+
+    public synchronized int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized void setMaxBytes(int maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    public synchronized int getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * When disabled, every text is parsed again and nothing is kept
+     */
+    public synchronized void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public synchronized boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getSizeInBytes() {
+        return bytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void registerMemoryCallbacks(Context context) {
+        synchronized (this) {
+            if (memoryCallbacksRegistered || context == null) {
+                return;
+            }
+            memoryCallbacksRegistered = true;
+        }
+        context.getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+    }
+
+    private synchronized void trim() {
+        trimToBytes(maxBytes);
+        final Iterator<Map.Entry<String, Spanned>> iterator = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            final Map.Entry<String, Spanned> eldest = iterator.next();
+            bytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    private synchronized void trimToBytes(int maxBytes) {
+        final Iterator<Map.Entry<String, Spanned>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Spanned> eldest = iterator.next();
+            bytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    private static int sizeOf(String html, Spanned spanned) {
+        //chars of the source and of the parsed text, spans are not counted
+        return (html.length() + spanned.length()) * 2;
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.florent37.viewtooltip;
+
+/**
+ * Returned by {@link ViewTooltip#prepare()}, the text of the tooltip is measured in background
+ * and {@link #show()} only has to attach and draw it
+ */
+public class PreparedTooltip implements TextMeasurer.Callback {
+
+    private final ViewTooltip viewTooltip;
+    private TextMeasurer.Measurement measurement;
+    private boolean ready;
+    private boolean cancelled;
+
+    PreparedTooltip(ViewTooltip viewTooltip) {
+        this.viewTooltip = viewTooltip;
+    }
+
+    @Override
+    public void onMeasured(TextMeasurer.Measurement measurement) {
+        this.measurement = measurement;
+        this.ready = true;
+    }
+
+    ViewTooltip getViewTooltip() {
+        return viewTooltip;
+    }
+
+    void setReady() {
+        this.ready = true;
+    }
+
+    /**
+     * @return true once the text is measured, show() can still be called before, it then measures on the UI thread
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return the view of the tooltip, when cancelled it is not shown and null if the view already went back to its pool
+     */
+    public ViewTooltip.TooltipView show() {
+        if (cancelled) {
+            return viewTooltip.getTooltipView();
+        }
+        if (measurement != null) {
+            //closed since prepare(), the view may have gone back to its pool
+            viewTooltip.obtainTooltipView().setPreparedText(measurement);
+        }
+        return viewTooltip.show();
+    }
+
+    /**
+     * The measurement stays in cache for the next tooltip with the same text
+     */
+    public void cancel() {
+        cancelled = true;
+        measurement = null;
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Layout;
+import android.text.Spanned;
+
+import androidx.core.text.PrecomputedTextCompat;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Computes the glyph measurements and the desired width of tooltip texts on a background thread,
+ * keeps the last results keyed by text, typeface and text size
+ * <p>
+ * Plain texts are compared by content. Spans have no value equality, a styled text only matches the same instance :
+ * the {@link HtmlCache} hands the same one for the same html
+ */
+class TextMeasurer {
+
+    private static final int MAX_ENTRIES = 32;
+
+    private static final Executor EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "ViewTooltip-text");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        }
+    });
+
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private static final LinkedHashMap<Key, Measurement> CACHE = new LinkedHashMap<Key, Measurement>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Measurement> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    interface Callback {
+        void onMeasured(Measurement measurement);
+    }
+
+    static class Measurement {
+        final CharSequence source;
+        final PrecomputedTextCompat text;
+        final int desiredWidth;
+
+        Measurement(CharSequence source, PrecomputedTextCompat text, int desiredWidth) {
+            this.source = source;
+            this.text = text;
+            this.desiredWidth = desiredWidth;
+        }
+    }
+
+    private TextMeasurer() {
+    }
+
+    /**
+     * Calls back on the main thread, right away when the text was already measured
+     */
+    static void measure(final CharSequence text, final PrecomputedTextCompat.Params params, final Callback callback) {
+        final Key key = new Key(text, params.getTextPaint().getTypeface(), params.getTextPaint().getTextSize());
+        final Measurement cached;
+        synchronized (CACHE) {
+            cached = CACHE.get(key);
+        }
+        if (cached != null && cached.text.getParams().equals(params)) {
+            callback.onMeasured(cached);
+            return;
+        }
+
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PrecomputedTextCompat precomputedText = PrecomputedTextCompat.create(text, params);
+                //the width TextView would compute in onMeasure, the expensive part for long texts
+                final int desiredWidth = (int) Math.ceil(Layout.getDesiredWidth(precomputedText, params.getTextPaint()));
+                final Measurement measurement = new Measurement(text, precomputedText, desiredWidth);
+                synchronized (CACHE) {
+                    CACHE.put(key, measurement);
+                }
+                MAIN_HANDLER.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        callback.onMeasured(measurement);
+                    }
+                });
+            }
+        });
+    }
+
+    private static class Key {
+        private final CharSequence text;
+        private final Typeface typeface;
+        private final float textSize;
+
+        Key(CharSequence text, Typeface typeface, float textSize) {
+            this.text = text instanceof Spanned ? text : text.toString();
+            this.typeface = typeface;
+            this.textSize = textSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return textSize == key.textSize
+                    && (typeface == null ? key.typeface == null : typeface.equals(key.typeface))
+                    && (text instanceof Spanned ? text == key.text : text.equals(key.text));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.toString().hashCode();
+            result = 31 * result + (typeface != null ? typeface.hashCode() : 0);
+            result = 31 * result + Float.floatToIntBits(textSize);
+            return result;
+        }
+    }
+}
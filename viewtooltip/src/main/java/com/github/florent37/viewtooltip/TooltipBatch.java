@@ -0,0 +1,116 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Shows several tooltips in the same frame : the anchors are read and the tooltips attached and placed
+ * in a single pre-draw pass, the root view offset is measured once
+ * <pre>
+ * ViewTooltip.batch()
+ *         .add(ViewTooltip.on(this, first).text("First"))
+ *         .add(ViewTooltip.on(this, second).text("Second"))
+ *         .showAll();
+ * </pre>
+ * The showDelay of the tooltips is ignored.
+ */
+public class TooltipBatch {
+
+    private final List<ViewTooltip> tooltips = new ArrayList<>();
+    private final List<ViewTooltip> pendingTooltips = new ArrayList<>();
+    private final List<ViewGroup> observedRoots = new ArrayList<>();
+    private final Rect rootRect = new Rect();
+    private final Point rootOffset = new Point();
+
+    private final ViewTreeObserver.OnPreDrawListener preDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            final boolean shown = showReady();
+            if (pendingTooltips.isEmpty()) {
+                stopObserving();
+            }
+            //skip this frame, the next one lays out and draws every new tooltip at once
+            return !shown;
+        }
+    };
+
+    TooltipBatch() {
+    }
+
+    public TooltipBatch add(ViewTooltip tooltip) {
+        tooltips.add(tooltip);
+        return this;
+    }
+
+    public void showAll() {
+        boolean ready = true;
+        for (int i = 0; i < tooltips.size(); i++) {
+            final ViewTooltip tooltip = tooltips.get(i);
+            tooltip.requestShow();
+            if (tooltip.resolveRoot()) {
+                tooltip.batch = this;
+                pendingTooltips.add(tooltip);
+                ready &= tooltip.isAnchorReady();
+            }
+        }
+        tooltips.clear();
+
+        if (ready) {
+            showReady();
+        } else {
+            for (int i = 0; i < pendingTooltips.size(); i++) {
+                final ViewGroup root = pendingTooltips.get(i).getDecorView();
+                if (!observedRoots.contains(root)) {
+                    observedRoots.add(root);
+                    root.getViewTreeObserver().addOnPreDrawListener(preDrawListener);
+                }
+            }
+        }
+    }
+
+    void cancel(ViewTooltip tooltip) {
+        tooltip.batch = null;
+        if (pendingTooltips.remove(tooltip) && pendingTooltips.isEmpty()) {
+            stopObserving();
+        }
+    }
+
+    /**
+     * @return true if at least one tooltip was attached
+     */
+    private boolean showReady() {
+        boolean shown = false;
+        ViewGroup lastRoot = null;
+        final Iterator<ViewTooltip> iterator = pendingTooltips.iterator();
+        while (iterator.hasNext()) {
+            final ViewTooltip tooltip = iterator.next();
+            if (!tooltip.isAnchorReady()) {
+                continue;
+            }
+            iterator.remove();
+            tooltip.batch = null;
+
+            final ViewGroup root = tooltip.getDecorView();
+            if (root != lastRoot) {
+                root.getGlobalVisibleRect(rootRect, rootOffset);
+                lastRoot = root;
+            }
+            tooltip.showNow(rootOffset);
+            shown = true;
+        }
+        return shown;
+    }
+
+    private void stopObserving() {
+        for (int i = 0; i < observedRoots.size(); i++) {
+            observedRoots.get(i).getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
+        }
+        observedRoots.clear();
+    }
+}
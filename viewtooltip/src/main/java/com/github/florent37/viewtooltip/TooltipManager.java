@@ -0,0 +1,384 @@
+package com.github.florent37.viewtooltip;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import com.github.florent37.viewtooltip.layout.PlacementSolver;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps track of the tooltips shown in a window
+ * <p>
+ * It applies {@link ViewTooltip#onDuplicate(ViewTooltip.Duplicate)}, limits the number of tooltips displayed at the same time
+ * (the others wait by {@link ViewTooltip#priority(int)}) and runs every autoHide from a single callback
+ */
+public class TooltipManager {
+
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final View rootView;
+    private final ArrayList<ViewTooltip> activeTooltips = new ArrayList<>();
+    private final PriorityQueue<ViewTooltip> pendingTooltips = new PriorityQueue<>(8, new Comparator<ViewTooltip>() {
+        @Override
+        public int compare(ViewTooltip first, ViewTooltip second) {
+            if (first.priority != second.priority) {
+                return first.priority > second.priority ? -1 : 1;
+            }
+            return first.sequence < second.sequence ? -1 : (first.sequence == second.sequence ? 0 : 1);
+        }
+    });
+    private int maxConcurrent = UNLIMITED;
+    private long sequence;
+
+    private long scheduledExpiry = Long.MAX_VALUE;
+    private final Runnable expiryRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scheduledExpiry = Long.MAX_VALUE;
+            final long now = SystemClock.uptimeMillis();
+            for (int i = activeTooltips.size() - 1; i >= 0; i--) {
+                if (i >= activeTooltips.size()) {
+                    continue;
+                }
+                final ViewTooltip.TooltipView tooltipView = activeTooltips.get(i).getTooltipView();
+                if (tooltipView.expiryTime != 0 && tooltipView.expiryTime <= now) {
+                    tooltipView.expiryTime = 0;
+                    tooltipView.remove();
+                }
+            }
+            scheduleNextExpiry();
+        }
+    };
+
+    private int trackedCount;
+    private ViewTreeObserver trackingObserver;
+    private final ViewTreeObserver.OnPreDrawListener trackingListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            boolean moved = false;
+            for (int i = 0; i < activeTooltips.size(); i++) {
+                final ViewTooltip tooltip = activeTooltips.get(i);
+                if (tooltip.trackAnchor) {
+                    moved |= tooltip.updateAnchorPosition();
+                }
+            }
+            if (moved) {
+                solvePlacements();
+            }
+            return true;
+        }
+    };
+
+    private int scrollingCount;
+    private ViewTreeObserver scrollObserver;
+    private final ViewTreeObserver.OnScrollChangedListener scrollListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            boolean moved = false;
+            for (int i = 0; i < activeTooltips.size(); i++) {
+                final ViewTooltip tooltip = activeTooltips.get(i);
+                if (tooltip.followScroll) {
+                    moved |= tooltip.updateAnchorPosition();
+                }
+            }
+            if (moved) {
+                solvePlacements();
+            }
+        }
+    };
+
+    private int autoPositionCount;
+    private PlacementSolver solver;
+
+    private TooltipManager(View rootView) {
+        this.rootView = rootView;
+    }
+
+    public static TooltipManager of(Activity activity) {
+        return of(activity.getWindow().getDecorView());
+    }
+
+    /**
+     * @param rootView the view tooltips are added to, the decor view unless one was given to ViewTooltip.on(activity, rootView, view)
+     */
+    public static TooltipManager of(View rootView) {
+        TooltipManager manager = (TooltipManager) rootView.getTag(R.id.viewtooltip_manager);
+        if (manager == null) {
+            manager = new TooltipManager(rootView);
+            rootView.setTag(R.id.viewtooltip_manager, manager);
+        }
+        return manager;
+    }
+
+    /**
+     * @param maxConcurrent number of tooltips displayed at the same time, {@link #UNLIMITED} by default
+     */
+    public void setMaxConcurrent(int maxConcurrent) {
+        this.maxConcurrent = maxConcurrent;
+        while (activeTooltips.size() > maxConcurrent) {
+            removeNow(findLowestPriority());
+        }
+        showPending();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getActiveCount() {
+        return activeTooltips.size();
+    }
+
+    public int getPendingCount() {
+        return pendingTooltips.size();
+    }
+
+    /**
+     * Removes every displayed tooltip and forgets the pending ones
+     */
+    public void closeAll() {
+        pendingTooltips.clear();
+        for (int i = activeTooltips.size() - 1; i >= 0; i--) {
+            if (i < activeTooltips.size()) {
+                activeTooltips.get(i).getTooltipView().remove();
+            }
+        }
+    }
+
+    /**
+     * @return true if the tooltip can be attached now, false if it has to wait or was ignored, an ignored tooltip is discarded
+     */
+    boolean admit(ViewTooltip tooltip) {
+        if (activeTooltips.contains(tooltip)) {
+            return false;
+        }
+        if (!handleDuplicate(tooltip)) {
+            tooltip.discard();
+            return false;
+        }
+        if (activeTooltips.size() >= maxConcurrent) {
+            final ViewTooltip lowest = findLowestPriority();
+            if (lowest == null || lowest.priority >= tooltip.priority) {
+                enqueue(tooltip);
+                return false;
+            }
+            removeNow(lowest);
+        }
+        pendingTooltips.remove(tooltip);
+        activeTooltips.add(tooltip);
+        tooltip.getTooltipView().manager = this;
+        if (tooltip.trackAnchor && trackedCount++ == 0) {
+            startTracking();
+        }
+        if (tooltip.followScroll && scrollingCount++ == 0) {
+            startFollowingScroll();
+        }
+        if (tooltip.positionCandidates != null) {
+            autoPositionCount++;
+        }
+        return true;
+    }
+
+    void cancel(ViewTooltip tooltip) {
+        pendingTooltips.remove(tooltip);
+    }
+
+    void onRemoved(ViewTooltip.TooltipView tooltipView) {
+        forget(tooltipView);
+        showPending();
+        //the remaining tooltips may get back their preferred side
+        solvePlacements();
+    }
+
+    /**
+     * Called once a tooltip is attached and placed
+     */
+    void onPlaced() {
+        solvePlacements();
+    }
+
+    /**
+     * Places the tooltips using {@link ViewTooltip#autoPosition(ViewTooltip.Position...)} in the order they were shown,
+     * around the other ones
+     */
+    private void solvePlacements() {
+        if (autoPositionCount == 0) {
+            return;
+        }
+        if (solver == null) {
+            solver = new PlacementSolver();
+        }
+        solver.reset(rootView.getWidth(), rootView.getHeight());
+        for (int i = 0; i < activeTooltips.size(); i++) {
+            final ViewTooltip tooltip = activeTooltips.get(i);
+            if (tooltip.positionCandidates == null) {
+                final ViewTooltip.TooltipView tooltipView = tooltip.getTooltipView();
+                final int left = (int) tooltipView.getTranslationX();
+                final int top = (int) tooltipView.getTranslationY();
+                solver.addObstacle(left, top, left + tooltipView.getMeasuredWidth(), top + tooltipView.getMeasuredHeight());
+            }
+        }
+        for (int i = 0; i < activeTooltips.size(); i++) {
+            final ViewTooltip tooltip = activeTooltips.get(i);
+            if (tooltip.positionCandidates != null) {
+                tooltip.getTooltipView().solvePlacement(solver, tooltip.positionCandidates, rootView.getWidth());
+            }
+        }
+    }
+
+    private void forget(ViewTooltip.TooltipView tooltipView) {
+        for (int i = 0; i < activeTooltips.size(); i++) {
+            final ViewTooltip tooltip = activeTooltips.get(i);
+            if (tooltip.getTooltipView() == tooltipView) {
+                activeTooltips.remove(i);
+                if (tooltip.trackAnchor && --trackedCount == 0) {
+                    stopTracking();
+                }
+                if (tooltip.followScroll && --scrollingCount == 0) {
+                    stopFollowingScroll();
+                }
+                if (tooltip.positionCandidates != null) {
+                    autoPositionCount--;
+                }
+                break;
+            }
+        }
+        tooltipView.expiryTime = 0;
+    }
+
+    void scheduleExpiry(ViewTooltip.TooltipView tooltipView, long duration) {
+        tooltipView.expiryTime = SystemClock.uptimeMillis() + duration;
+        if (tooltipView.expiryTime < scheduledExpiry) {
+            schedule(tooltipView.expiryTime);
+        }
+    }
+
+    private boolean handleDuplicate(ViewTooltip tooltip) {
+        switch (tooltip.duplicate) {
+            case IGNORE:
+                for (int i = 0; i < activeTooltips.size(); i++) {
+                    if (activeTooltips.get(i).getAnchor() == tooltip.getAnchor()) {
+                        return false;
+                    }
+                }
+                for (ViewTooltip pending : pendingTooltips) {
+                    if (pending != tooltip && pending.getAnchor() == tooltip.getAnchor()) {
+                        return false;
+                    }
+                }
+                return true;
+            case REPLACE:
+                for (int i = activeTooltips.size() - 1; i >= 0; i--) {
+                    if (i < activeTooltips.size() && activeTooltips.get(i).getAnchor() == tooltip.getAnchor()) {
+                        removeNow(activeTooltips.get(i));
+                    }
+                }
+                final Iterator<ViewTooltip> iterator = pendingTooltips.iterator();
+                while (iterator.hasNext()) {
+                    final ViewTooltip pending = iterator.next();
+                    if (pending != tooltip && pending.getAnchor() == tooltip.getAnchor()) {
+                        iterator.remove();
+                        pending.discard();
+                    }
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    private void enqueue(ViewTooltip tooltip) {
+        if (!pendingTooltips.contains(tooltip)) {
+            tooltip.sequence = sequence++;
+            pendingTooltips.add(tooltip);
+        }
+    }
+
+    private void showPending() {
+        while (!pendingTooltips.isEmpty() && activeTooltips.size() < maxConcurrent) {
+            pendingTooltips.poll().show();
+        }
+    }
+
+    private ViewTooltip findLowestPriority() {
+        ViewTooltip lowest = null;
+        for (int i = 0; i < activeTooltips.size(); i++) {
+            final ViewTooltip tooltip = activeTooltips.get(i);
+            if (lowest == null || tooltip.priority < lowest.priority) {
+                lowest = tooltip;
+            }
+        }
+        return lowest;
+    }
+
+    private void removeNow(ViewTooltip tooltip) {
+        if (tooltip == null) {
+            return;
+        }
+        final ViewTooltip.TooltipView tooltipView = tooltip.getTooltipView();
+        //the caller reuses the slot, pending tooltips must not take it meanwhile
+        tooltipView.manager = null;
+        forget(tooltipView);
+        tooltipView.removeNow();
+    }
+
+    /**
+     * A single pre-draw listener per window checks every tracked anchor
+     */
+    private void startTracking() {
+        trackingObserver = rootView.getViewTreeObserver();
+        trackingObserver.addOnPreDrawListener(trackingListener);
+    }
+
+    private void stopTracking() {
+        if (trackingObserver != null && trackingObserver.isAlive()) {
+            trackingObserver.removeOnPreDrawListener(trackingListener);
+        } else {
+            rootView.getViewTreeObserver().removeOnPreDrawListener(trackingListener);
+        }
+        trackingObserver = null;
+    }
+
+    /**
+     * A single scroll listener per window moves the tooltips anchored in any scrolling parent,
+     * without replacing the listeners set by the app on its scroll views
+     */
+    private void startFollowingScroll() {
+        scrollObserver = rootView.getViewTreeObserver();
+        scrollObserver.addOnScrollChangedListener(scrollListener);
+    }
+
+    private void stopFollowingScroll() {
+        if (scrollObserver != null && scrollObserver.isAlive()) {
+            scrollObserver.removeOnScrollChangedListener(scrollListener);
+        } else {
+            rootView.getViewTreeObserver().removeOnScrollChangedListener(scrollListener);
+        }
+        scrollObserver = null;
+    }
+
+    private void scheduleNextExpiry() {
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < activeTooltips.size(); i++) {
+            final long expiryTime = activeTooltips.get(i).getTooltipView().expiryTime;
+            if (expiryTime != 0 && expiryTime < next) {
+                next = expiryTime;
+            }
+        }
+        if (next != Long.MAX_VALUE) {
+            schedule(next);
+        }
+    }
+
+    private void schedule(long expiryTime) {
+        rootView.removeCallbacks(expiryRunnable);
+        scheduledExpiry = expiryTime;
+        rootView.postDelayed(expiryRunnable, Math.max(0, expiryTime - SystemClock.uptimeMillis()));
+    }
+}
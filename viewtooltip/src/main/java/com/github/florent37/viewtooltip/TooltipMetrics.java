@@ -0,0 +1,175 @@
+package com.github.florent37.viewtooltip;
+
+import android.view.View;
+
+import androidx.core.os.TraceCompat;
+
+/**
+ * Receives the cost of the tooltips, registered for every tooltip with {@link #setGlobal(TooltipMetrics)}
+ * or for one with {@link ViewTooltip#metrics(TooltipMetrics)}. Durations are in nanoseconds.
+ * <p>
+ * Override the callbacks you need, they are called on the main thread. Nothing is measured while no metrics are registered.
+ */
+public abstract class TooltipMetrics {
+
+    private static TooltipMetrics global;
+    private static boolean traceEnabled;
+    private static int liveCount;
+    private static int pooledCount;
+
+    public static void setGlobal(TooltipMetrics metrics) {
+        global = metrics;
+    }
+
+    public static TooltipMetrics getGlobal() {
+        return global;
+    }
+
+    /**
+     * Emits android.os.Trace sections around show, setup, adjustSize and onDraw, to enable before showing tooltips
+     */
+    public static void setTraceEnabled(boolean enabled) {
+        traceEnabled = enabled;
+    }
+
+    /**
+     * @return the number of tooltips attached to a window
+     */
+    public static int getLiveCount() {
+        return liveCount;
+    }
+
+    /**
+     * @return the number of tooltips waiting in a {@link TooltipPool}
+     */
+    public static int getPooledCount() {
+        return pooledCount;
+    }
+
+    /**
+     * @param requestToAttach   from show() to the tooltip being attached, show delay included
+     * @param attachToFirstDraw from the attach to the first onDraw
+     * @param firstDrawToDisplay from the first onDraw to onDisplay, the end of the enter animation
+     */
+    public void onDisplayed(View tooltip, long requestToAttach, long attachToFirstDraw, long firstDrawToDisplay) {
+
+    }
+
+    public void onMeasure(View tooltip, long duration) {
+
+    }
+
+    public void onLayout(View tooltip, long duration) {
+
+    }
+
+    /**
+     * The bubble path was built again
+     */
+    public void onBubbleBuilt(View tooltip, long duration) {
+
+    }
+
+    public void onDraw(View tooltip, long duration) {
+
+    }
+
+    public void onAnimationEnd(View tooltip, boolean enter, long duration) {
+
+    }
+
+    public void onCountChanged(int live, int pooled) {
+
+    }
+
+    static boolean isEnabled(TooltipMetrics metrics) {
+        return metrics != null || global != null;
+    }
+
+    static void beginSection(String sectionName) {
+        if (traceEnabled) {
+            TraceCompat.beginSection(sectionName);
+        }
+    }
+
+    static void endSection() {
+        if (traceEnabled) {
+            TraceCompat.endSection();
+        }
+    }
+
+    static void dispatchDisplayed(TooltipMetrics metrics, View tooltip, long requestToAttach, long attachToFirstDraw, long firstDrawToDisplay) {
+        if (metrics != null) {
+            metrics.onDisplayed(tooltip, requestToAttach, attachToFirstDraw, firstDrawToDisplay);
+        }
+        if (global != null && global != metrics) {
+            global.onDisplayed(tooltip, requestToAttach, attachToFirstDraw, firstDrawToDisplay);
+        }
+    }
+
+    static void dispatchMeasure(TooltipMetrics metrics, View tooltip, long duration) {
+        if (metrics != null) {
+            metrics.onMeasure(tooltip, duration);
+        }
+        if (global != null && global != metrics) {
+            global.onMeasure(tooltip, duration);
+        }
+    }
+
+    static void dispatchLayout(TooltipMetrics metrics, View tooltip, long duration) {
+        if (metrics != null) {
+            metrics.onLayout(tooltip, duration);
+        }
+        if (global != null && global != metrics) {
+            global.onLayout(tooltip, duration);
+        }
+    }
+
+    static void dispatchBubbleBuilt(TooltipMetrics metrics, View tooltip, long duration) {
+        if (metrics != null) {
+            metrics.onBubbleBuilt(tooltip, duration);
+        }
+        if (global != null && global != metrics) {
+            global.onBubbleBuilt(tooltip, duration);
+        }
+    }
+
+    static void dispatchDraw(TooltipMetrics metrics, View tooltip, long duration) {
+        if (metrics != null) {
+            metrics.onDraw(tooltip, duration);
+        }
+        if (global != null && global != metrics) {
+            global.onDraw(tooltip, duration);
+        }
+    }
+
+    static void dispatchAnimationEnd(TooltipMetrics metrics, View tooltip, boolean enter, long duration) {
+        if (metrics != null) {
+            metrics.onAnimationEnd(tooltip, enter, duration);
+        }
+        if (global != null && global != metrics) {
+            global.onAnimationEnd(tooltip, enter, duration);
+        }
+    }
+
+    static void updateLiveCount(TooltipMetrics metrics, int delta) {
+        liveCount += delta;
+        dispatchCount(metrics);
+    }
+
+    static void updatePooledCount(int delta) {
+        if (delta != 0) {
+            pooledCount += delta;
+            dispatchCount(null);
+        }
+    }
+
+    private static void dispatchCount(TooltipMetrics metrics) {
+        if (metrics != null) {
+            metrics.onCountChanged(liveCount, pooledCount);
+        }
+        if (global != null && global != metrics) {
+            global.onCountChanged(liveCount, pooledCount);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+import androidx.annotation.MainThread;
+
+import java.util.HashMap;
+
+/**
+ * Paints shared by the tooltips drawn with the same colors, shadow and border.
+ * An entry is created by the first tooltip drawing it and forgotten when the last one is detached,
+ * its Paint is never modified once shared
+ */
+@MainThread
+final class TooltipPaints {
+
+    private static final HashMap<Key, Entry> ENTRIES = new HashMap<>();
+
+    //reused by every lookup, only copied when an entry is created
+    private static final Key LOOKUP = new Key();
+
+    private TooltipPaints() {
+    }
+
+    /**
+     * @param endColor same as color for a plain color, otherwise the bottom color of a vertical gradient from top to bottom
+     */
+    static Entry acquireFill(int color, int endColor, float top, float bottom, float shadowRadius, int shadowColor) {
+        final boolean gradient = endColor != color;
+        LOOKUP.set(Paint.Style.FILL, color, endColor, gradient ? top : 0, gradient ? bottom : 0, 0, shadowRadius, shadowRadius > 0 ? shadowColor : 0);
+        return acquire();
+    }
+
+    static Entry acquireBorder(int color, float width) {
+        LOOKUP.set(Paint.Style.STROKE, color, color, 0, 0, width, 0, 0);
+        return acquire();
+    }
+
+    /**
+     * @param entry may be null
+     */
+    static void release(Entry entry) {
+        if (entry != null && --entry.references == 0) {
+            ENTRIES.remove(entry.key);
+        }
+    }
+
+    private static Entry acquire() {
+        Entry entry = ENTRIES.get(LOOKUP);
+        if (entry == null) {
+            final Key key = LOOKUP.copy();
+            entry = new Entry(key, key.createPaint());
+            ENTRIES.put(key, entry);
+        }
+        entry.references++;
+        return entry;
+    }
+
+    static final class Entry {
+        final Paint paint;
+        private final Key key;
+        private int references;
+
+        private Entry(Key key, Paint paint) {
+            this.key = key;
+            this.paint = paint;
+        }
+    }
+
+    private static final class Key {
+        private Paint.Style style;
+        private int color;
+        private int endColor;
+        private float top;
+        private float bottom;
+        private float strokeWidth;
+        private float shadowRadius;
+        private int shadowColor;
+
+        void set(Paint.Style style, int color, int endColor, float top, float bottom, float strokeWidth, float shadowRadius, int shadowColor) {
+            this.style = style;
+            this.color = color;
+            this.endColor = endColor;
+            this.top = top;
+            this.bottom = bottom;
+            this.strokeWidth = strokeWidth;
+            this.shadowRadius = shadowRadius;
+            this.shadowColor = shadowColor;
+        }
+
+        Key copy() {
+            final Key key = new Key();
+            key.set(style, color, endColor, top, bottom, strokeWidth, shadowRadius, shadowColor);
+            return key;
+        }
+
+        Paint createPaint() {
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(style);
+            paint.setColor(color);
+            if (endColor != color) {
+                paint.setShader(new LinearGradient(0, top, 0, bottom, color, endColor, Shader.TileMode.CLAMP));
+            }
+            if (style == Paint.Style.STROKE) {
+                paint.setStrokeWidth(strokeWidth);
+            }
+            if (shadowRadius > 0) {
+                paint.setShadowLayer(shadowRadius, 0, 0, shadowColor);
+            }
+            return paint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) o;
+            return style == key.style
+                    && color == key.color
+                    && endColor == key.endColor
+                    && Float.compare(top, key.top) == 0
+                    && Float.compare(bottom, key.bottom) == 0
+                    && Float.compare(strokeWidth, key.strokeWidth) == 0
+                    && Float.compare(shadowRadius, key.shadowRadius) == 0
+                    && shadowColor == key.shadowColor;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = style.hashCode();
+            result = 31 * result + color;
+            result = 31 * result + endColor;
+            result = 31 * result + Float.floatToIntBits(top);
+            result = 31 * result + Float.floatToIntBits(bottom);
+            result = 31 * result + Float.floatToIntBits(strokeWidth);
+            result = 31 * result + Float.floatToIntBits(shadowRadius);
+            result = 31 * result + shadowColor;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package com.github.florent37.viewtooltip;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+
+/**
+ * Recycles the TooltipViews of an Activity, opt-in with {@link #install(Activity)}
+ * <p>
+ * Once a tooltip is hidden its view goes back to the pool and can be handed to the next ViewTooltip.on(...),
+ * so don't keep the TooltipView returned by show() after its onHide
+ * <p>
+ * The pool lives on the decor view of the Activity and follows its lifecycle : it is emptied when the Activity is stopped
+ * and uninstalled when it is destroyed
+ */
+public class TooltipPool {
+
+    public static final int DEFAULT_MAX_SIZE = 4;
+
+    private final WeakReference<Activity> activity;
+    private final ArrayDeque<ViewTooltip.TooltipView> views = new ArrayDeque<>();
+    private final Configuration configuration = new Configuration();
+    private int maxSize;
+
+    private LifecycleObserver lifecycleObserver;
+    private Application.ActivityLifecycleCallbacks activityCallbacks;
+
+    private final View.OnAttachStateChangeListener windowListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            //the activity window is gone, the recycled views would only leak it
+            final Activity activity = TooltipPool.this.activity.get();
+            if (activity != null) {
+                uninstall(activity);
+            } else {
+                clear();
+            }
+        }
+    };
+
+    private TooltipPool(Activity activity, int maxSize) {
+        this.activity = new WeakReference<>(activity);
+        this.maxSize = maxSize;
+    }
+
+    public static TooltipPool install(Activity activity) {
+        return install(activity, DEFAULT_MAX_SIZE);
+    }
+
+    public static TooltipPool install(Activity activity, int maxSize) {
+        TooltipPool pool = get(activity);
+        if (pool == null) {
+            pool = new TooltipPool(activity, maxSize);
+            final View decorView = activity.getWindow().getDecorView();
+            decorView.setTag(R.id.viewtooltip_pool, pool);
+            decorView.addOnAttachStateChangeListener(pool.windowListener);
+            pool.observe(activity);
+        } else {
+            pool.setMaxSize(maxSize);
+        }
+        return pool;
+    }
+
+    public static void uninstall(Activity activity) {
+        final TooltipPool pool = get(activity);
+        if (pool != null) {
+            pool.clear();
+            final View decorView = activity.getWindow().getDecorView();
+            decorView.setTag(R.id.viewtooltip_pool, null);
+            decorView.removeOnAttachStateChangeListener(pool.windowListener);
+            pool.stopObserving(activity);
+        }
+    }
+
+    static TooltipPool get(Activity activity) {
+        if (activity == null || activity.getWindow() == null) {
+            return null;
+        }
+        return (TooltipPool) activity.getWindow().getDecorView().getTag(R.id.viewtooltip_pool);
+    }
+
+    private void observe(Activity activity) {
+        if (activity instanceof LifecycleOwner) {
+            lifecycleObserver = new PoolObserver(this);
+            ((LifecycleOwner) activity).getLifecycle().addObserver(lifecycleObserver);
+        } else {
+            //without a lifecycle, only the callbacks of this activity are followed
+            activityCallbacks = new ActivityCallbacks(this);
+            activity.getApplication().registerActivityLifecycleCallbacks(activityCallbacks);
+        }
+    }
+
+    private void stopObserving(Activity activity) {
+        if (lifecycleObserver != null) {
+            ((LifecycleOwner) activity).getLifecycle().removeObserver(lifecycleObserver);
+            lifecycleObserver = null;
+        }
+        if (activityCallbacks != null) {
+            activity.getApplication().unregisterActivityLifecycleCallbacks(activityCallbacks);
+            activityCallbacks = null;
+        }
+    }
+
+    ViewTooltip.TooltipView obtain(Context context) {
+        //recycled views were inflated with the configuration they were released in
+        if (!views.isEmpty() && configuration.diff(context.getResources().getConfiguration()) != 0) {
+            clear();
+        }
+        ViewTooltip.TooltipView view = views.poll();
+        if (view == null) {
+            view = new ViewTooltip.TooltipView(context);
+        } else {
+            TooltipMetrics.updatePooledCount(-1);
+        }
+        view.pool = this;
+        return view;
+    }
+
+    void release(ViewTooltip.TooltipView view) {
+        view.reset();
+        if (views.size() < maxSize && !views.contains(view)) {
+            if (views.isEmpty()) {
+                configuration.setTo(view.getResources().getConfiguration());
+            }
+            views.add(view);
+            TooltipMetrics.updatePooledCount(1);
+        }
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (views.size() > maxSize) {
+            views.poll();
+            TooltipMetrics.updatePooledCount(-1);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int size() {
+        return views.size();
+    }
+
+    public void clear() {
+        TooltipMetrics.updatePooledCount(-views.size());
+        views.clear();
+    }
+
+    private void onActivityStopped() {
+        //the screen is hidden, its memory is trimmed first
+        clear();
+    }
+
+    private void onActivityDestroyed() {
+        final Activity activity = this.activity.get();
+        if (activity != null) {
+            uninstall(activity);
+        } else {
+            clear();
+        }
+    }
+
+    private static class PoolObserver implements LifecycleObserver {
+        private final TooltipPool pool;
+
+        PoolObserver(TooltipPool pool) {
+            this.pool = pool;
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_STOP)
+        public void onStop() {
+            pool.onActivityStopped();
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            pool.onActivityDestroyed();
+        }
+    }
+
+    private static class ActivityCallbacks implements Application.ActivityLifecycleCallbacks {
+        private final TooltipPool pool;
+
+        ActivityCallbacks(TooltipPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            if (activity == pool.activity.get()) {
+                pool.onActivityStopped();
+            }
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            if (activity == pool.activity.get()) {
+                pool.onActivityDestroyed();
+            }
+        }
+    }
+}
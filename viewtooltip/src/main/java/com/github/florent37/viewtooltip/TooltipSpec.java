@@ -0,0 +1,403 @@
+package com.github.florent37.viewtooltip;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.util.SparseArray;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.MainThread;
+import androidx.annotation.StyleRes;
+
+import java.util.WeakHashMap;
+
+/**
+ * Immutable style of a tooltip : colors, dimensions, typeface and behaviour resolved once,
+ * then applied to any number of tooltips with {@link ViewTooltip#spec(TooltipSpec)}
+ * <p>
+ * Build it in code with {@link Builder} or load it from a style with {@link #fromStyle(Context, int)}
+ * and {@link #fromTheme(Context)}, the styles are parsed once per theme
+ */
+public final class TooltipSpec {
+
+    /** Value of {@link #textSize} and {@link #textGravity} keeping the default of the TextView */
+    public static final int DEFAULT = -1;
+
+    private static final WeakHashMap<Resources.Theme, SparseArray<TooltipSpec>> styleCache = new WeakHashMap<>();
+
+    final ViewTooltip.Position position;
+    final ViewTooltip.ALIGN align;
+    final int color;
+    final int gradientEndColor;
+    final int corner;
+    final int arrowWidth;
+    final int arrowHeight;
+    final int arrowSourceMargin;
+    final int arrowTargetMargin;
+    final int distanceWithView;
+    final int paddingLeft;
+    final int paddingTop;
+    final int paddingRight;
+    final int paddingBottom;
+    final int textColor;
+    final float textSize;
+    final Typeface typeface;
+    final int textGravity;
+    final boolean withShadow;
+    final int shadowColor;
+    final int borderColor;
+    final float borderWidth;
+    final boolean autoHide;
+    final long duration;
+    final boolean clickToHide;
+
+    private TooltipSpec(Builder builder) {
+        this.position = builder.position;
+        this.align = builder.align;
+        this.color = builder.color;
+        this.gradientEndColor = builder.gradientEndColor;
+        this.corner = builder.corner;
+        this.arrowWidth = builder.arrowWidth;
+        this.arrowHeight = builder.arrowHeight;
+        this.arrowSourceMargin = builder.arrowSourceMargin;
+        this.arrowTargetMargin = builder.arrowTargetMargin;
+        this.distanceWithView = builder.distanceWithView;
+        this.paddingLeft = builder.paddingLeft;
+        this.paddingTop = builder.paddingTop;
+        this.paddingRight = builder.paddingRight;
+        this.paddingBottom = builder.paddingBottom;
+        this.textColor = builder.textColor;
+        this.textSize = builder.textSize;
+        this.typeface = builder.typeface;
+        this.textGravity = builder.textGravity;
+        this.withShadow = builder.withShadow;
+        this.shadowColor = builder.shadowColor;
+        this.autoHide = builder.autoHide;
+        this.duration = builder.duration;
+        this.clickToHide = builder.clickToHide;
+        this.borderColor = builder.borderColor;
+        this.borderWidth = builder.borderWidth;
+    }
+
+    /**
+     * Spec of the style given by the <code>viewTooltipStyle</code> attribute of the theme,
+     * the default spec when the theme has none
+     */
+    @MainThread
+    public static TooltipSpec fromTheme(Context context) {
+        final TypedValue value = new TypedValue();
+        if (context.getTheme().resolveAttribute(R.attr.viewTooltipStyle, value, true)) {
+            return fromStyle(context, value.resourceId);
+        }
+        return fromStyle(context, 0);
+    }
+
+    /**
+     * Spec of a style using the <code>ViewTooltip</code> attributes, parsed once per theme
+     */
+    @MainThread
+    public static TooltipSpec fromStyle(Context context, @StyleRes int style) {
+        final Resources.Theme theme = context.getTheme();
+        SparseArray<TooltipSpec> specs = styleCache.get(theme);
+        if (specs == null) {
+            specs = new SparseArray<>();
+            styleCache.put(theme, specs);
+        }
+        TooltipSpec spec = specs.get(style);
+        if (spec == null) {
+            spec = parse(context, style);
+            specs.put(style, spec);
+        }
+        return spec;
+    }
+
+    private static TooltipSpec parse(Context context, @StyleRes int style) {
+        final Builder builder = new Builder();
+        if (style == 0) {
+            return builder.build();
+        }
+        final TypedArray a = context.obtainStyledAttributes(style, R.styleable.ViewTooltip);
+        try {
+            builder.position(ViewTooltip.Position.values()[a.getInt(R.styleable.ViewTooltip_tooltipPosition, builder.position.ordinal())]);
+            builder.align(ViewTooltip.ALIGN.values()[a.getInt(R.styleable.ViewTooltip_tooltipAlign, builder.align.ordinal())]);
+            builder.color(a.getColor(R.styleable.ViewTooltip_tooltipColor, builder.color));
+            if (a.hasValue(R.styleable.ViewTooltip_tooltipGradientEndColor)) {
+                builder.gradient(builder.color, a.getColor(R.styleable.ViewTooltip_tooltipGradientEndColor, builder.color));
+            }
+            builder.corner(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipCorner, builder.corner));
+            builder.arrowWidth(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipArrowWidth, builder.arrowWidth));
+            builder.arrowHeight(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipArrowHeight, builder.arrowHeight));
+            builder.arrowSourceMargin(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipArrowSourceMargin, builder.arrowSourceMargin));
+            builder.arrowTargetMargin(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipArrowTargetMargin, builder.arrowTargetMargin));
+            builder.distanceWithView(a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipDistanceWithView, builder.distanceWithView));
+            builder.padding(
+                    a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipPaddingLeft, builder.paddingLeft),
+                    a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipPaddingTop, builder.paddingTop),
+                    a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipPaddingRight, builder.paddingRight),
+                    a.getDimensionPixelSize(R.styleable.ViewTooltip_tooltipPaddingBottom, builder.paddingBottom));
+            builder.textColor(a.getColor(R.styleable.ViewTooltip_tooltipTextColor, builder.textColor));
+            builder.textSize(a.getDimension(R.styleable.ViewTooltip_android_textSize, builder.textSize));
+            builder.textGravity(a.getInt(R.styleable.ViewTooltip_android_gravity, builder.textGravity));
+            builder.typeface(parseTypeface(a));
+            builder.withShadow(a.getBoolean(R.styleable.ViewTooltip_tooltipWithShadow, builder.withShadow));
+            builder.shadowColor(a.getColor(R.styleable.ViewTooltip_tooltipShadowColor, builder.shadowColor));
+            builder.border(
+                    a.getColor(R.styleable.ViewTooltip_tooltipBorderColor, builder.borderColor),
+                    a.getDimension(R.styleable.ViewTooltip_tooltipBorderWidth, builder.borderWidth));
+            builder.autoHide(
+                    a.getBoolean(R.styleable.ViewTooltip_tooltipAutoHide, builder.autoHide),
+                    a.getInt(R.styleable.ViewTooltip_tooltipDuration, (int) builder.duration));
+            builder.clickToHide(a.getBoolean(R.styleable.ViewTooltip_tooltipClickToHide, builder.clickToHide));
+        } finally {
+            a.recycle();
+        }
+        return builder.build();
+    }
+
+    private static Typeface parseTypeface(TypedArray a) {
+        final boolean hasFamily = a.hasValue(R.styleable.ViewTooltip_android_fontFamily);
+        final boolean hasStyle = a.hasValue(R.styleable.ViewTooltip_android_textStyle);
+        if (!hasFamily && !hasStyle) {
+            return null;
+        }
+        final int style = a.getInt(R.styleable.ViewTooltip_android_textStyle, Typeface.NORMAL);
+        //font resources (res/font) can only be read from the style since Android O
+        if (hasFamily && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && a.getResourceId(R.styleable.ViewTooltip_android_fontFamily, 0) != 0) {
+            final Typeface font = a.getFont(R.styleable.ViewTooltip_android_fontFamily);
+            if (font != null) {
+                return style == Typeface.NORMAL ? font : Typeface.create(font, style);
+            }
+        }
+        final String family = hasFamily ? a.getString(R.styleable.ViewTooltip_android_fontFamily) : null;
+        return Typeface.create(family, style);
+    }
+
+    /**
+     * Applies the spec to the view, before the text, anchor and listeners given to the {@link ViewTooltip}
+     */
+    void applyTo(ViewTooltip.TooltipView view) {
+        view.setBubblePadding(paddingLeft, paddingTop, paddingRight, paddingBottom);
+        view.setArrowWidth(arrowWidth);
+        view.setArrowHeight(arrowHeight);
+        view.setArrowSourceMargin(arrowSourceMargin);
+        view.setArrowTargetMargin(arrowTargetMargin);
+        view.setPosition(position);
+        view.setAlign(align);
+        view.setGradient(color, gradientEndColor);
+        view.setCorner(corner);
+        view.setDistanceWithView(distanceWithView);
+        view.setTextColor(textColor);
+        if (textSize != DEFAULT) {
+            view.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+        }
+        if (typeface != null) {
+            view.setTextTypeFace(typeface);
+        }
+        if (textGravity != DEFAULT) {
+            view.setTextGravity(textGravity);
+        }
+        view.setShadowColor(shadowColor);
+        view.setWithShadow(withShadow);
+        view.setBorder(borderColor, borderWidth);
+        view.setAutoHide(autoHide);
+        view.setDuration(duration);
+        view.setClickToHide(clickToHide);
+    }
+
+    public Builder newBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private ViewTooltip.Position position = ViewTooltip.Position.BOTTOM;
+        private ViewTooltip.ALIGN align = ViewTooltip.ALIGN.CENTER;
+        private int color = Color.parseColor("#1F7C82");
+        private int gradientEndColor = color;
+        private int corner = 30;
+        private int arrowWidth = 15;
+        private int arrowHeight = 15;
+        private int arrowSourceMargin = 0;
+        private int arrowTargetMargin = 0;
+        private int distanceWithView = 0;
+        private int paddingLeft = 30;
+        private int paddingTop = 20;
+        private int paddingRight = 30;
+        private int paddingBottom = 30;
+        private int textColor = Color.WHITE;
+        private float textSize = DEFAULT;
+        private Typeface typeface;
+        private int textGravity = DEFAULT;
+        private boolean withShadow = true;
+        private int shadowColor = Color.parseColor("#aaaaaa");
+        private int borderColor = Color.TRANSPARENT;
+        private float borderWidth = 0;
+        private boolean autoHide = true;
+        private long duration = 4000;
+        private boolean clickToHide = false;
+
+        public Builder() {
+        }
+
+        private Builder(TooltipSpec spec) {
+            position = spec.position;
+            align = spec.align;
+            color = spec.color;
+            gradientEndColor = spec.gradientEndColor;
+            corner = spec.corner;
+            arrowWidth = spec.arrowWidth;
+            arrowHeight = spec.arrowHeight;
+            arrowSourceMargin = spec.arrowSourceMargin;
+            arrowTargetMargin = spec.arrowTargetMargin;
+            distanceWithView = spec.distanceWithView;
+            paddingLeft = spec.paddingLeft;
+            paddingTop = spec.paddingTop;
+            paddingRight = spec.paddingRight;
+            paddingBottom = spec.paddingBottom;
+            textColor = spec.textColor;
+            textSize = spec.textSize;
+            typeface = spec.typeface;
+            textGravity = spec.textGravity;
+            withShadow = spec.withShadow;
+            shadowColor = spec.shadowColor;
+            borderColor = spec.borderColor;
+            borderWidth = spec.borderWidth;
+            autoHide = spec.autoHide;
+            duration = spec.duration;
+            clickToHide = spec.clickToHide;
+        }
+
+        public Builder position(ViewTooltip.Position position) {
+            this.position = position;
+            return this;
+        }
+
+        public Builder align(ViewTooltip.ALIGN align) {
+            this.align = align;
+            return this;
+        }
+
+        public Builder color(@ColorInt int color) {
+            this.color = color;
+            this.gradientEndColor = color;
+            return this;
+        }
+
+        /**
+         * Vertical gradient fitted to the bubble, from its top to its bottom
+         */
+        public Builder gradient(@ColorInt int startColor, @ColorInt int endColor) {
+            this.color = startColor;
+            this.gradientEndColor = endColor;
+            return this;
+        }
+
+        public Builder corner(int corner) {
+            this.corner = corner;
+            return this;
+        }
+
+        public Builder arrowWidth(int arrowWidth) {
+            this.arrowWidth = arrowWidth;
+            return this;
+        }
+
+        public Builder arrowHeight(int arrowHeight) {
+            this.arrowHeight = arrowHeight;
+            return this;
+        }
+
+        public Builder arrowSourceMargin(int arrowSourceMargin) {
+            this.arrowSourceMargin = arrowSourceMargin;
+            return this;
+        }
+
+        public Builder arrowTargetMargin(int arrowTargetMargin) {
+            this.arrowTargetMargin = arrowTargetMargin;
+            return this;
+        }
+
+        public Builder distanceWithView(int distance) {
+            this.distanceWithView = distance;
+            return this;
+        }
+
+        public Builder padding(int left, int top, int right, int bottom) {
+            this.paddingLeft = left;
+            this.paddingTop = top;
+            this.paddingRight = right;
+            this.paddingBottom = bottom;
+            return this;
+        }
+
+        public Builder textColor(@ColorInt int textColor) {
+            this.textColor = textColor;
+            return this;
+        }
+
+        /**
+         * @param textSize in pixels, {@link #DEFAULT} for the size of the TextView
+         */
+        public Builder textSize(float textSize) {
+            this.textSize = textSize;
+            return this;
+        }
+
+        public Builder textSize(Context context, int unit, float textSize) {
+            return textSize(TypedValue.applyDimension(unit, textSize, context.getResources().getDisplayMetrics()));
+        }
+
+        public Builder typeface(Typeface typeface) {
+            this.typeface = typeface;
+            return this;
+        }
+
+        public Builder textGravity(int textGravity) {
+            this.textGravity = textGravity;
+            return this;
+        }
+
+        public Builder withShadow(boolean withShadow) {
+            this.withShadow = withShadow;
+            return this;
+        }
+
+        public Builder shadowColor(@ColorInt int shadowColor) {
+            this.shadowColor = shadowColor;
+            return this;
+        }
+
+        /**
+         * @param width 0 for no border
+         */
+        public Builder border(@ColorInt int color, float width) {
+            this.borderColor = color;
+            this.borderWidth = width;
+            return this;
+        }
+
+        public Builder autoHide(boolean autoHide, long duration) {
+            this.autoHide = autoHide;
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder duration(long duration) {
+            this.duration = duration;
+            return this;
+        }
+
+        public Builder clickToHide(boolean clickToHide) {
+            this.clickToHide = clickToHide;
+            return this;
+        }
+
+        public TooltipSpec build() {
+            return new TooltipSpec(this);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.github.florent37.viewtooltip;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+
+import androidx.core.view.ViewCompat;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Debug checks enabled by {@link ViewTooltip#enableStrictMode()}, each violation comes with the stack trace
+ * of the place the tooltip was created :
+ * <ul>
+ * <li>a tooltip still attached, or a show / autoHide still pending, when its activity or fragment is destroyed</li>
+ * <li>a TooltipView still referenced a few seconds after its activity or fragment is destroyed</li>
+ * <li>show() on an anchor detached from its window or without size</li>
+ * <li>more tooltips attached at the same time than the given maximum</li>
+ * </ul>
+ * The checks keep a stack trace per tooltip and force garbage collections, don't enable them in release builds.
+ */
+public final class TooltipStrictMode {
+
+    public static final int DEFAULT_MAX_ATTACHED = 5;
+    private static final long LEAK_CHECK_DELAY = 5000;
+
+    public interface ViolationListener {
+        /**
+         * @param creationTrace where the tooltip was created
+         */
+        void onViolation(String message, Throwable creationTrace);
+    }
+
+    private static final ViolationListener LOG_LISTENER = new ViolationListener() {
+        @Override
+        public void onViolation(String message, Throwable creationTrace) {
+            Log.w("ViewTooltip", message, creationTrace);
+        }
+    };
+
+    private static boolean enabled;
+    private static int maxAttached = DEFAULT_MAX_ATTACHED;
+    private static ViolationListener listener = LOG_LISTENER;
+
+    private static final Map<ViewTooltip, Watch> WATCHED = new WeakHashMap<>();
+    private static final List<Watch> LEAK_CHECKS = new ArrayList<>();
+    private static final Handler HANDLER = new Handler(Looper.getMainLooper());
+    private static Application application;
+
+    private static final Runnable LEAK_CHECK = new Runnable() {
+        @Override
+        public void run() {
+            Runtime.getRuntime().gc();
+            for (int i = 0; i < LEAK_CHECKS.size(); i++) {
+                final Watch watch = LEAK_CHECKS.get(i);
+                if (watch.tooltipView != null && watch.tooltipView.get() != null) {
+                    report("TooltipView still referenced " + LEAK_CHECK_DELAY + "ms after its screen was destroyed", watch);
+                }
+            }
+            LEAK_CHECKS.clear();
+        }
+    };
+
+    private static final Application.ActivityLifecycleCallbacks ACTIVITY_CALLBACKS = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+
+        }
+
+        @Override
+        public void onActivityStarted(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+            final Iterator<Map.Entry<ViewTooltip, Watch>> iterator = WATCHED.entrySet().iterator();
+            while (iterator.hasNext()) {
+                final Map.Entry<ViewTooltip, Watch> entry = iterator.next();
+                if (entry.getValue().activity.get() == activity && entry.getValue().lifecycle == null) {
+                    iterator.remove();
+                    postDestroyCheck(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    };
+
+    private TooltipStrictMode() {
+    }
+
+    static void enable(int maxAttachedTooltips, ViolationListener violationListener) {
+        enabled = true;
+        maxAttached = maxAttachedTooltips;
+        listener = violationListener != null ? violationListener : LOG_LISTENER;
+    }
+
+    static void disable() {
+        enabled = false;
+        WATCHED.clear();
+        LEAK_CHECKS.clear();
+        HANDLER.removeCallbacks(LEAK_CHECK);
+        if (application != null) {
+            application.unregisterActivityLifecycleCallbacks(ACTIVITY_CALLBACKS);
+            application = null;
+        }
+    }
+
+    static void watch(ViewTooltip tooltip, ViewTooltip.MyContext myContext) {
+        if (!enabled) {
+            return;
+        }
+        final Activity activity = myContext.getActivity();
+        final Lifecycle lifecycle = myContext.getLifecycle();
+        WATCHED.put(tooltip, new Watch(activity, lifecycle));
+
+        if (lifecycle == null && application == null && activity != null) {
+            application = activity.getApplication();
+            application.registerActivityLifecycleCallbacks(ACTIVITY_CALLBACKS);
+        }
+    }
+
+    /**
+     * The TooltipView is only created by show(), the leak check follows it from there
+     */
+    static void onViewObtained(ViewTooltip tooltip, ViewTooltip.TooltipView tooltipView) {
+        if (!enabled) {
+            return;
+        }
+        final Watch watch = WATCHED.get(tooltip);
+        if (watch != null) {
+            watch.tooltipView = new WeakReference<>(tooltipView);
+        }
+    }
+
+    /**
+     * The destroy check observes the lifecycle from the show() binding the tooltip until it is unbound
+     */
+    static void onBind(ViewTooltip tooltip) {
+        if (!enabled) {
+            return;
+        }
+        final Watch watch = WATCHED.get(tooltip);
+        final Lifecycle lifecycle = watch != null && watch.lifecycle != null ? watch.lifecycle.get() : null;
+        if (lifecycle != null && watch.lifecycleObserver == null) {
+            watch.lifecycleObserver = new DestroyObserver(tooltip);
+            lifecycle.addObserver(watch.lifecycleObserver);
+        }
+    }
+
+    /**
+     * A closed tooltip has nothing left to check, until it is shown again
+     */
+    static void onUnbind(ViewTooltip tooltip) {
+        if (!enabled) {
+            return;
+        }
+        final Watch watch = WATCHED.get(tooltip);
+        if (watch == null || watch.lifecycleObserver == null) {
+            return;
+        }
+        final Lifecycle lifecycle = watch.lifecycle.get();
+        //unbound by the destroy itself, the check still runs after it
+        if (lifecycle != null && lifecycle.getCurrentState() != Lifecycle.State.DESTROYED) {
+            lifecycle.removeObserver(watch.lifecycleObserver);
+            watch.lifecycleObserver = null;
+        }
+    }
+
+    static void checkShow(ViewTooltip tooltip, View anchor) {
+        if (!enabled) {
+            return;
+        }
+        if (!ViewCompat.isAttachedToWindow(anchor)) {
+            report("show() on an anchor detached from its window, the tooltip waits until it is attached", WATCHED.get(tooltip));
+        } else if (ViewCompat.isLaidOut(anchor) && (anchor.getWidth() == 0 || anchor.getHeight() == 0)) {
+            report("show() on an anchor without size", WATCHED.get(tooltip));
+        }
+    }
+
+    static void checkAttached(ViewTooltip tooltip) {
+        if (enabled && TooltipMetrics.getLiveCount() > maxAttached) {
+            report(TooltipMetrics.getLiveCount() + " tooltips attached at the same time, more than " + maxAttached, WATCHED.get(tooltip));
+        }
+    }
+
+    /**
+     * Runs after every destroy callback, the library closes the tooltips bound to a lifecycle from one of them
+     */
+    private static void postDestroyCheck(final ViewTooltip tooltip, final Watch watch) {
+        HANDLER.post(new Runnable() {
+            @Override
+            public void run() {
+                final ViewTooltip.TooltipView tooltipView = tooltip.getTooltipView();
+                if (tooltipView != null && tooltipView.getParent() != null && tooltipView.owner == tooltip) {
+                    report("tooltip still attached after its screen was destroyed", watch);
+                }
+                if (tooltip.isShowPending()) {
+                    report("show() still pending after its screen was destroyed", watch);
+                }
+                if (tooltipView != null && tooltipView.owner == tooltip && (tooltipView.isAutoHidePending() || tooltipView.expiryTime != 0)) {
+                    report("autoHide callback still pending after its screen was destroyed", watch);
+                }
+                LEAK_CHECKS.add(watch);
+                HANDLER.removeCallbacks(LEAK_CHECK);
+                HANDLER.postDelayed(LEAK_CHECK, LEAK_CHECK_DELAY);
+            }
+        });
+    }
+
+    private static void report(String message, Watch watch) {
+        listener.onViolation(message, watch != null ? watch.creationTrace : new Throwable("ViewTooltip created outside of strict mode"));
+    }
+
+    private static class Watch {
+        final Throwable creationTrace = new Throwable("ViewTooltip created here");
+        final WeakReference<Activity> activity;
+        //null when the destroy is seen through the activity callbacks
+        final WeakReference<Lifecycle> lifecycle;
+        WeakReference<ViewTooltip.TooltipView> tooltipView;
+        LifecycleObserver lifecycleObserver;
+
+        Watch(Activity activity, Lifecycle lifecycle) {
+            this.activity = new WeakReference<>(activity);
+            this.lifecycle = lifecycle != null ? new WeakReference<>(lifecycle) : null;
+        }
+    }
+
+    private static class DestroyObserver implements LifecycleObserver {
+        private final WeakReference<ViewTooltip> tooltip;
+
+        DestroyObserver(ViewTooltip tooltip) {
+            this.tooltip = new WeakReference<>(tooltip);
+        }
+
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            final ViewTooltip tooltip = this.tooltip.get();
+            if (tooltip != null) {
+                final Watch watch = WATCHED.remove(tooltip);
+                if (watch != null) {
+                    postDestroyCheck(tooltip, watch);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.github.florent37.viewtooltip;
+
+import android.app.Activity;
+import android.view.View;
+
+import androidx.fragment.app.Fragment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows tooltips one after the other
+ * <pre>
+ * TooltipTour.on(this)
+ *         .step(new TooltipTour.Step(search) {
+ *             public void configure(ViewTooltip tooltip) {
+ *                 tooltip.text("Search").position(ViewTooltip.Position.BOTTOM);
+ *             }
+ *         })
+ *         .onComplete(...)
+ *         .start();
+ * </pre>
+ * While a step is displayed the next one is configured and its text measured in background,
+ * the steps go through two TooltipViews which cross fade. Steps are not hidden automatically,
+ * a step hidden by a click or its duration goes to the next one.
+ */
+public class TooltipTour {
+
+    private final ViewTooltip.MyContext myContext;
+    private final List<Step> steps = new ArrayList<>();
+    private final ViewTooltip.TooltipView[] views = new ViewTooltip.TooltipView[2];
+    private ListenerComplete listenerComplete;
+
+    private int index = -1;
+    private ViewTooltip current;
+    private PreparedTooltip prefetched;
+    private int prefetchedIndex = -1;
+    private boolean switching;
+    private boolean finished;
+
+    private TooltipTour(ViewTooltip.MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    public static TooltipTour on(Activity activity) {
+        return new TooltipTour(new ViewTooltip.MyContext(activity));
+    }
+
+    public static TooltipTour on(Fragment fragment) {
+        return new TooltipTour(new ViewTooltip.MyContext(fragment));
+    }
+
+    public TooltipTour step(Step step) {
+        steps.add(step);
+        return this;
+    }
+
+    public TooltipTour onComplete(ListenerComplete listenerComplete) {
+        this.listenerComplete = listenerComplete;
+        return this;
+    }
+
+    public void start() {
+        if (index != -1 || finished) {
+            return;
+        }
+        if (steps.isEmpty()) {
+            complete(false);
+        } else {
+            showStep(0);
+        }
+    }
+
+    public void next() {
+        if (index == -1 || finished) {
+            return;
+        }
+        if (index + 1 < steps.size()) {
+            showStep(index + 1);
+        } else {
+            complete(false);
+        }
+    }
+
+    public void back() {
+        if (index > 0 && !finished) {
+            showStep(index - 1);
+        }
+    }
+
+    public void skip() {
+        if (index != -1) {
+            complete(true);
+        }
+    }
+
+    /**
+     * @return the index of the displayed step, -1 before start()
+     */
+    public int getCurrentStep() {
+        return index;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void showStep(int stepIndex) {
+        switching = true;
+        final ViewTooltip previous = current;
+        current = null;
+        if (previous != null) {
+            //fades out while the next step fades in
+            previous.close();
+        }
+
+        final PreparedTooltip prepared = prefetchedIndex == stepIndex ? prefetched : null;
+        if (prefetched != null && prepared == null) {
+            prefetched.cancel();
+        }
+        prefetched = null;
+        prefetchedIndex = -1;
+
+        index = stepIndex;
+        if (prepared != null) {
+            current = prepared.getViewTooltip();
+            prepared.show();
+        } else {
+            current = build(stepIndex, obtainView(previous));
+            current.show();
+        }
+        switching = false;
+
+        prefetch();
+    }
+
+    private void complete(boolean skipped) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (prefetched != null) {
+            prefetched.cancel();
+            prefetched = null;
+        }
+        final ViewTooltip previous = current;
+        current = null;
+        if (previous != null) {
+            previous.close();
+        }
+        if (listenerComplete != null) {
+            listenerComplete.onComplete(skipped);
+        }
+    }
+
+    /**
+     * Configures the next step in the view which is not displayed
+     */
+    private void prefetch() {
+        final int nextIndex = index + 1;
+        if (finished || nextIndex >= steps.size() || prefetchedIndex == nextIndex) {
+            return;
+        }
+        final ViewTooltip.TooltipView view = findFreeView();
+        if (view != null) {
+            prefetched = build(nextIndex, view).prepare();
+            prefetchedIndex = nextIndex;
+        }
+        //otherwise the previous step is still fading out, done once it is removed
+    }
+
+    private ViewTooltip.TooltipView findFreeView() {
+        for (int i = 0; i < views.length; i++) {
+            if (views[i] == null) {
+                views[i] = new ViewTooltip.TooltipView(myContext.getContext());
+                return views[i];
+            }
+            if (views[i].getParent() == null && (current == null || current.getTooltipView() != views[i])) {
+                return views[i];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param previous the step fading out, kept on screen
+     */
+    private ViewTooltip.TooltipView obtainView(ViewTooltip previous) {
+        final ViewTooltip.TooltipView view = findFreeView();
+        if (view != null) {
+            return view;
+        }
+        //steps changing faster than the animations, the oldest one is removed right away
+        for (int i = 0; i < views.length; i++) {
+            if (previous == null || views[i] != previous.getTooltipView()) {
+                views[i].closeNow();
+                return views[i];
+            }
+        }
+        return views[0];
+    }
+
+    private ViewTooltip build(int stepIndex, ViewTooltip.TooltipView view) {
+        view.reset();
+        final Step step = steps.get(stepIndex);
+        final ViewTooltip tooltip = ViewTooltip.on(myContext, step.getAnchor(), view);
+        tooltip.autoHide(false, 0);
+        step.configure(tooltip);
+        tooltip.tour = this;
+        return tooltip;
+    }
+
+    void onStepRemoved(ViewTooltip tooltip) {
+        if (switching || finished) {
+            return;
+        }
+        if (tooltip == current) {
+            //hidden by a click or by its duration
+            current = null;
+            next();
+        } else {
+            prefetch();
+        }
+    }
+
+    public interface ListenerComplete {
+        /**
+         * @param skipped true if the tour ended with {@link #skip()}
+         */
+        void onComplete(boolean skipped);
+    }
+
+    public abstract static class Step {
+        private final View anchor;
+
+        public Step(View anchor) {
+            this.anchor = anchor;
+        }
+
+        public View getAnchor() {
+            return anchor;
+        }
+
+        /**
+         * Sets the text, position, colors... of the step, the tooltip is not hidden automatically by default
+         */
+        public abstract void configure(ViewTooltip tooltip);
+    }
+}
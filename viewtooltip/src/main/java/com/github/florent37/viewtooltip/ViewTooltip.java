@@ -7,6 +7,7 @@ import android.content.Context;
 import android.content.ContextWrapper;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Outline;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.Point;
@@ -15,17 +16,35 @@ import android.graphics.RectF;
 import android.graphics.Typeface;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.RequiresApi;
 import androidx.annotation.StringRes;
-import androidx.core.widget.NestedScrollView;
+import androidx.core.view.ScrollingView;
+import androidx.core.view.ViewCompat;
+import androidx.core.widget.TextViewCompat;
+
+import com.github.florent37.viewtooltip.layout.PathSink;
+import com.github.florent37.viewtooltip.layout.PlacementSolver;
+import com.github.florent37.viewtooltip.layout.TooltipLayoutEngine;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
-
-import android.text.Html;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.OnLifecycleEvent;
+
+import android.os.Build;
+import android.text.TextUtils;
+import android.util.TypedValue;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewOutlineProvider;
+import android.view.ViewPropertyAnimator;
 import android.view.ViewTreeObserver;
 import android.view.Window;
+import android.widget.AbsListView;
 import android.widget.FrameLayout;
+import android.widget.HorizontalScrollView;
+import android.widget.ScrollView;
 import android.widget.TextView;
 
 import java.util.Arrays;
@@ -36,37 +55,115 @@ import java.util.Arrays;
 
 public class ViewTooltip {
 
+    /**
+     * Delay applied by show() before 1.2.3, for code that relies on that timing
+     */
+    public static final long LEGACY_SHOW_DELAY = 100;
+
+    private final MyContext myContext;
     private View rootView;
     private final View view;
-    private final TooltipView tooltip_view;
+    private TooltipView tooltip_view;
+    private boolean configured;
+    private long showDelay = 0;
+    private ViewGroup decorView;
+    private Lifecycle lifecycle;
+    TooltipBatch batch;
+    TooltipTour tour;
+    private boolean anchorListenerAdded;
+
+    int priority = 0;
+    Duplicate duplicate = Duplicate.ALLOW;
+    long sequence;
+    boolean trackAnchor = false;
+    boolean followScroll = false;
+    private AttachMode attachMode = AttachMode.DECOR_VIEW;
+    private Position[] fallbackPositions;
+    int[] positionCandidates;
+
+    private int anchorX;
+    private int anchorY;
+    private int anchorWidth;
+    private int anchorHeight;
+
+    private final Rect anchorRect = new Rect();
+    private final Rect anchorVisibleRect = new Rect();
+    private final Rect rootGlobalRect = new Rect();
+    private final Point rootGlobalOffset = new Point();
+    private final int[] location = new int[2];
+
+    private boolean showPending;
+
+    //configuration recorded by the builder methods, the TooltipView is only created and configured by show()
+    private TooltipSpec spec;
+    private TooltipSpec.Builder style;
+    private View customView;
+    private int customViewId;
+    private boolean flat;
+    private RenderMode renderMode;
+    private String text;
+    private boolean cacheHtml = true;
+    private int textRes;
+    private Paint paint;
+    private int[] margin;
+    private ListenerDisplay listenerDisplay;
+    private ListenerHide listenerHide;
+    private TooltipAnimation tooltipAnimation;
+    private TooltipMetrics metrics;
+
+    private final Runnable showRunnable = new Runnable() {
+        @Override
+        public void run() {
+            showNow();
+        }
+    };
+
+    private final ViewTreeObserver.OnPreDrawListener showOnPreDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            view.getViewTreeObserver().removeOnPreDrawListener(this);
+            showNow();
+            return true;
+        }
+    };
+
+    private final LifecycleObserver lifecycleObserver = new LifecycleObserver() {
+        @OnLifecycleEvent(Lifecycle.Event.ON_DESTROY)
+        public void onDestroy() {
+            closeNow();
+        }
+    };
+
+    private final View.OnAttachStateChangeListener anchorAttachListener = new View.OnAttachStateChangeListener() {
+        @Override
+        public void onViewAttachedToWindow(View v) {
+
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            closeNow();
+        }
+    };
 
     private ViewTooltip(MyContext myContext, View view) {
+        this.myContext = myContext;
         this.view = view;
-        this.tooltip_view = new TooltipView(myContext.getContext());
-        final NestedScrollView scrollParent = findScrollParent(view);
-        if (scrollParent != null) {
-            scrollParent.setOnScrollChangeListener(new NestedScrollView.OnScrollChangeListener() {
-                @Override
-                public void onScrollChange(NestedScrollView v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-                    tooltip_view.setTranslationY(tooltip_view.getTranslationY() - (scrollY - oldScrollY));
-                }
-            });
-        }
+        TooltipStrictMode.watch(this, myContext);
     }
 
     private ViewTooltip(MyContext myContext, View rootView, View view) {
+        this.myContext = myContext;
         this.rootView = rootView;
         this.view = view;
-        this.tooltip_view = new TooltipView(myContext.getContext());
-        final NestedScrollView scrollParent = findScrollParent(view);
-        if (scrollParent != null) {
-            scrollParent.setOnScrollChangeListener(new NestedScrollView.OnScrollChangeListener() {
-                @Override
-                public void onScrollChange(NestedScrollView v, int scrollX, int scrollY, int oldScrollX, int oldScrollY) {
-                    tooltip_view.setTranslationY(tooltip_view.getTranslationY() - (scrollY - oldScrollY));
-                }
-            });
-        }
+        TooltipStrictMode.watch(this, myContext);
+    }
+
+    private ViewTooltip(MyContext myContext, View view, TooltipView tooltipView) {
+        this.myContext = myContext;
+        this.view = view;
+        this.tooltip_view = tooltipView;
+        TooltipStrictMode.watch(this, myContext);
     }
 
     private ViewTooltip(View view) {
@@ -77,6 +174,13 @@ public class ViewTooltip {
         return new ViewTooltip(new MyContext(getActivityContext(view.getContext())), view);
     }
 
+    /**
+     * Configures a TooltipView owned by the caller, used by {@link TooltipTour} to go through its steps with the same views
+     */
+    static ViewTooltip on(MyContext myContext, View view, TooltipView tooltipView) {
+        return new ViewTooltip(myContext, view, tooltipView);
+    }
+
     public static ViewTooltip on(Fragment fragment, final View view) {
         return new ViewTooltip(new MyContext(fragment), view);
     }
@@ -89,13 +193,109 @@ public class ViewTooltip {
         return new ViewTooltip(new MyContext(getActivityContext(activity)), rootView, view);
     }
 
-    private NestedScrollView findScrollParent(View view) {
+    View getAnchor() {
+        return view;
+    }
+
+    /**
+     * @return null until the tooltip is shown or prepared
+     */
+    TooltipView getTooltipView() {
+        return tooltip_view;
+    }
+
+    /**
+     * Creates or borrows the TooltipView and applies the recorded configuration, done once by show() or prepare()
+     */
+    TooltipView obtainTooltipView() {
+        if (configured) {
+            return tooltip_view;
+        }
+        configured = true;
+        if (tooltip_view == null) {
+            tooltip_view = createTooltipView(myContext);
+        }
+        final TooltipView tooltipView = tooltip_view;
+        if (customView == null && customViewId != 0) {
+            customView = ((Activity) view.getContext()).findViewById(customViewId);
+        }
+        if (customView != null) {
+            tooltipView.setCustomView(customView);
+        }
+        if (flat) {
+            tooltipView.setFlat(true);
+        }
+        if (renderMode != null) {
+            tooltipView.setRenderMode(renderMode);
+        }
+        final TooltipSpec resolvedSpec = style != null ? style.build() : spec;
+        if (resolvedSpec != null) {
+            resolvedSpec.applyTo(tooltipView);
+        }
+        if (margin != null) {
+            tooltipView.setMargin(margin[0], margin[1], margin[2], margin[3]);
+        }
+        if (text != null) {
+            tooltipView.setText(text, cacheHtml);
+        } else if (textRes != 0) {
+            tooltipView.setText(textRes);
+        }
+        if (paint != null) {
+            tooltipView.setPaint(paint);
+        }
+        if (tooltipAnimation != null) {
+            tooltipView.setTooltipAnimation(tooltipAnimation);
+        }
+        tooltipView.setListenerDisplay(listenerDisplay);
+        tooltipView.setListenerHide(listenerHide);
+        tooltipView.metrics = metrics;
+        TooltipStrictMode.onViewObtained(this, tooltipView);
+        return tooltipView;
+    }
+
+    /**
+     * Style attributes set one by one, on top of the {@link #spec(TooltipSpec)}
+     */
+    private TooltipSpec.Builder style() {
+        if (style == null) {
+            style = spec != null ? spec.newBuilder() : new TooltipSpec.Builder();
+        }
+        return style;
+    }
+
+    /**
+     * Builder calls made once the view is configured by show() or prepare() apply to it right away
+     */
+    private ViewTooltip applyStyle() {
+        if (configured) {
+            style.build().applyTo(tooltip_view);
+        }
+        return this;
+    }
+
+    private static TooltipView createTooltipView(MyContext myContext) {
+        final TooltipPool pool = TooltipPool.get(myContext.getActivity());
+        if (pool != null) {
+            return pool.obtain(myContext.getContext());
+        }
+        return new TooltipView(myContext.getContext());
+    }
+
+    /**
+     * @return the closest scrolling parent : NestedScrollView, RecyclerView, ScrollView, HorizontalScrollView or a list
+     */
+    private static View findScrollParent(View view) {
         if (view.getParent() == null || !(view.getParent() instanceof View)) {
             return null;
-        } else if (view.getParent() instanceof NestedScrollView) {
-            return ((NestedScrollView) view.getParent());
+        }
+        final View parent = (View) view.getParent();
+        if (parent instanceof ScrollingView
+                || parent instanceof ScrollView
+                || parent instanceof HorizontalScrollView
+                || parent instanceof AbsListView) {
+            return parent;
         } else {
-            return findScrollParent(((View) view.getParent()));
+            return findScrollParent(parent);
         }
     }
 
@@ -110,206 +310,592 @@ public class ViewTooltip {
     }
 
     public ViewTooltip position(Position position) {
-        this.tooltip_view.setPosition(position);
+        style().position(position);
+        return applyStyle();
+    }
+
+    /**
+     * Applies a whole style at once, the methods called after it override its values
+     */
+    public ViewTooltip spec(TooltipSpec spec) {
+        this.spec = spec;
+        this.style = null;
+        if (configured) {
+            spec.applyTo(tooltip_view);
+        }
         return this;
     }
 
-    public ViewTooltip withShadow(boolean withShadow) {
-        this.tooltip_view.setWithShadow(withShadow);
+    /**
+     * Moves the tooltip to another side when it would leave the screen or cover another tooltip,
+     * the sides are tried in this order after the one given to {@link #position(Position)}.
+     * Without fallback : the opposite side first, then the two others
+     */
+    public ViewTooltip autoPosition(Position... fallbackPositions) {
+        this.fallbackPositions = fallbackPositions;
         return this;
     }
 
+    public ViewTooltip withShadow(boolean withShadow) {
+        style().withShadow(withShadow);
+        return applyStyle();
+    }
+
     public ViewTooltip shadowColor(@ColorInt int shadowColor) {
-        this.tooltip_view.setShadowColor(shadowColor);
+        style().shadowColor(shadowColor);
+        return applyStyle();
+    }
+
+    /**
+     * Receives the timings of this tooltip, in addition to {@link TooltipMetrics#setGlobal(TooltipMetrics)}
+     */
+    public ViewTooltip metrics(TooltipMetrics metrics) {
+        this.metrics = metrics;
+        if (configured) {
+            tooltip_view.metrics = metrics;
+        }
+        return this;
+    }
+
+    public ViewTooltip attachMode(AttachMode attachMode) {
+        this.attachMode = attachMode;
+        return this;
+    }
+
+    public ViewTooltip renderMode(RenderMode renderMode) {
+        this.renderMode = renderMode;
+        if (configured) {
+            tooltip_view.setRenderMode(renderMode);
+        }
+        return this;
+    }
+
+    /**
+     * Lighter tooltip for texts : a single view drawing its text, without a child TextView
+     */
+    public ViewTooltip flat(boolean flat) {
+        this.flat = flat;
+        if (configured) {
+            tooltip_view.setFlat(flat);
+        }
         return this;
     }
 
     public ViewTooltip customView(View customView) {
-        this.tooltip_view.setCustomView(customView);
+        this.customView = customView;
+        this.customViewId = 0;
+        if (configured) {
+            tooltip_view.setCustomView(customView);
+        }
         return this;
     }
 
     public ViewTooltip customView(int viewId) {
-        this.tooltip_view.setCustomView(((Activity) view.getContext()).findViewById(viewId));
+        this.customView = null;
+        this.customViewId = viewId;
+        if (configured) {
+            customView = ((Activity) view.getContext()).findViewById(viewId);
+            tooltip_view.setCustomView(customView);
+        }
         return this;
     }
 
     public ViewTooltip arrowWidth(int arrowWidth) {
-        this.tooltip_view.setArrowWidth(arrowWidth);
-        return this;
+        style().arrowWidth(arrowWidth);
+        return applyStyle();
     }
 
     public ViewTooltip arrowHeight(int arrowHeight) {
-        this.tooltip_view.setArrowHeight(arrowHeight);
-        return this;
+        style().arrowHeight(arrowHeight);
+        return applyStyle();
     }
 
     public ViewTooltip arrowSourceMargin(int arrowSourceMargin) {
-        this.tooltip_view.setArrowSourceMargin(arrowSourceMargin);
-        return this;
+        style().arrowSourceMargin(arrowSourceMargin);
+        return applyStyle();
     }
 
     public ViewTooltip arrowTargetMargin(int arrowTargetMargin) {
-        this.tooltip_view.setArrowTargetMargin(arrowTargetMargin);
-        return this;
+        style().arrowTargetMargin(arrowTargetMargin);
+        return applyStyle();
     }
 
     public ViewTooltip align(ALIGN align) {
-        this.tooltip_view.setAlign(align);
+        style().align(align);
+        return applyStyle();
+    }
+
+    /**
+     * By default the tooltip is shown as soon as the anchor is laid out,
+     * use {@link #LEGACY_SHOW_DELAY} to get back the previous timing
+     */
+    public ViewTooltip showDelay(long showDelay) {
+        this.showDelay = showDelay;
         return this;
     }
 
+    /**
+     * When {@link TooltipManager#setMaxConcurrent(int)} is reached, the tooltip with the lowest priority waits
+     */
+    public ViewTooltip priority(int priority) {
+        this.priority = priority;
+        return this;
+    }
+
+    /**
+     * What to do when the anchor already has a tooltip, {@link Duplicate#ALLOW} by default
+     */
+    public ViewTooltip onDuplicate(Duplicate duplicate) {
+        this.duplicate = duplicate;
+        return this;
+    }
+
+    /**
+     * Moves the tooltip with its anchor (layout changes, animations, collapsing toolbars, keyboard...),
+     * the anchor position is checked once per frame
+     */
+    public ViewTooltip trackAnchor(boolean trackAnchor) {
+        this.trackAnchor = trackAnchor;
+        return this;
+    }
+
+    /**
+     * Measures the text on a background thread, call {@link PreparedTooltip#show()} later,
+     * the text and its style must not change in between
+     */
+    public PreparedTooltip prepare() {
+        final PreparedTooltip preparedTooltip = new PreparedTooltip(this);
+        obtainTooltipView().prepareText(preparedTooltip);
+        return preparedTooltip;
+    }
+
+    /**
+     * Debug checks reported in the log, see {@link TooltipStrictMode}, at most {@link TooltipStrictMode#DEFAULT_MAX_ATTACHED} attached tooltips.
+     * Applies to the tooltips created afterwards
+     */
+    public static void enableStrictMode() {
+        enableStrictMode(TooltipStrictMode.DEFAULT_MAX_ATTACHED, null);
+    }
+
+    /**
+     * @param listener null to report in the log
+     */
+    public static void enableStrictMode(int maxAttachedTooltips, TooltipStrictMode.ViolationListener listener) {
+        TooltipStrictMode.enable(maxAttachedTooltips, listener);
+    }
+
+    public static void disableStrictMode() {
+        TooltipStrictMode.disable();
+    }
+
+    /**
+     * Shows several tooltips in the same frame
+     */
+    public static TooltipBatch batch() {
+        return new TooltipBatch();
+    }
+
     public TooltipView show() {
-        final Context activityContext = tooltip_view.getContext();
+        TooltipMetrics.beginSection("ViewTooltip.show");
+        final TooltipView tooltipView = requestShow();
+        if (resolveRoot()) {
+            if (showDelay > 0) {
+                view.postDelayed(showRunnable, showDelay);
+                showPending = true;
+            } else if (isAnchorReady()) {
+                showNow();
+            } else {
+                view.getViewTreeObserver().addOnPreDrawListener(showOnPreDrawListener);
+                showPending = true;
+            }
+        }
+        TooltipMetrics.endSection();
+        return tooltipView;
+    }
+
+    /**
+     * @return false when the tooltip can't be shown : no activity or a destroyed screen
+     */
+    /**
+     * Shared by show() and {@link TooltipBatch} : obtains the view, stamps the request and runs the strict mode checks
+     */
+    TooltipView requestShow() {
+        final TooltipView tooltipView = obtainTooltipView();
+        if (TooltipMetrics.isEnabled(tooltipView.metrics)) {
+            tooltipView.requestTime = System.nanoTime();
+        }
+        TooltipStrictMode.checkShow(this, view);
+        return tooltipView;
+    }
+
+    boolean resolveRoot() {
+        final Context activityContext = obtainTooltipView().getContext();
         if (activityContext != null && activityContext instanceof Activity) {
-            final ViewGroup decorView = rootView != null ?
+            decorView = rootView != null ?
                     (ViewGroup) rootView :
                     (ViewGroup) ((Activity) activityContext).getWindow().getDecorView();
+            return bind();
+        }
+        return false;
+    }
 
-            view.postDelayed(new Runnable() {
-                @Override
-                public void run() {
-                    final Rect rect = new Rect();
-                    view.getGlobalVisibleRect(rect);
-
-                    final Rect rootGlobalRect = new Rect();
-                    final Point rootGlobalOffset = new Point();
-                    decorView.getGlobalVisibleRect(rootGlobalRect, rootGlobalOffset);
-
-                    int[] location = new int[2];
-                    view.getLocationOnScreen(location);
-                    rect.left = location[0];
-                    if (rootGlobalOffset != null) {
-                        rect.top -= rootGlobalOffset.y;
-                        rect.bottom -= rootGlobalOffset.y;
-                        rect.left -= rootGlobalOffset.x;
-                        rect.right -= rootGlobalOffset.x;
-                    }
+    ViewGroup getDecorView() {
+        return decorView;
+    }
+
+    boolean isAnchorReady() {
+        return ViewCompat.isLaidOut(view) && ViewCompat.isAttachedToWindow(view);
+    }
+
+    private void showNow() {
+        showPending = false;
+        decorView.getGlobalVisibleRect(rootGlobalRect, rootGlobalOffset);
+        showNow(rootGlobalOffset);
+    }
 
-                    decorView.addView(tooltip_view, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    /**
+     * @param rootOffset global offset of the root view, measured once for all the tooltips of a {@link TooltipBatch}
+     */
+    void showNow(Point rootOffset) {
+        followScroll = findScrollParent(view) != null;
+        positionCandidates = fallbackPositions != null ? buildPositionCandidates(tooltip_view.getPosition(), fallbackPositions) : null;
+        if (!TooltipManager.of(decorView).admit(this)) {
+            return;
+        }
 
-                    tooltip_view.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-                        @Override
-                        public boolean onPreDraw() {
+        computeAnchorRect(anchorRect, rootOffset);
 
-                            tooltip_view.setup(rect, decorView.getWidth());
+        //measured and placed before being attached, the parent measures it again at exactly that size
+        //so the first frame is already final.
+        //automatic positions are not squeezed, the solver moves them away from the edges
+        tooltip_view.owner = this;
+        tooltip_view.place(anchorRect, decorView.getWidth(), positionCandidates == null ? decorView.getHeight() : 0);
+        if (attachMode == AttachMode.OVERLAY && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            tooltip_view.overlayHost = decorView;
+            decorView.getOverlay().add(tooltip_view);
+        } else {
+            decorView.addView(tooltip_view, tooltip_view.getMeasuredWidth(), tooltip_view.getMeasuredHeight());
+        }
+        if (TooltipMetrics.isEnabled(tooltip_view.metrics)) {
+            tooltip_view.attachTime = System.nanoTime();
+        }
+        TooltipMetrics.updateLiveCount(tooltip_view.metrics, 1);
+        TooltipStrictMode.checkAttached(this);
+        tooltip_view.onAttached();
+        TooltipManager.of(decorView).onPlaced();
+    }
 
-                            tooltip_view.getViewTreeObserver().removeOnPreDrawListener(this);
+    private static int[] buildPositionCandidates(Position preferred, Position[] fallbackPositions) {
+        final Position[] positions = fallbackPositions.length > 0 ? fallbackPositions : getDefaultFallbacks(preferred);
+        final int[] candidates = new int[positions.length + 1];
+        candidates[0] = preferred.ordinal();
+        int count = 1;
+        for (Position position : positions) {
+            if (position != preferred) {
+                candidates[count++] = position.ordinal();
+            }
+        }
+        return count == candidates.length ? candidates : Arrays.copyOf(candidates, count);
+    }
 
-                            return false;
-                        }
-                    });
-                }
-            }, 100);
+    private static Position[] getDefaultFallbacks(Position preferred) {
+        switch (preferred) {
+            case TOP:
+                return new Position[]{Position.BOTTOM, Position.RIGHT, Position.LEFT};
+            case BOTTOM:
+                return new Position[]{Position.TOP, Position.RIGHT, Position.LEFT};
+            case LEFT:
+                return new Position[]{Position.RIGHT, Position.BOTTOM, Position.TOP};
+            default:
+                return new Position[]{Position.LEFT, Position.BOTTOM, Position.TOP};
         }
-        return tooltip_view;
+    }
+
+    /**
+     * Called by the TooltipManager on each frame when {@link #trackAnchor(boolean)} is enabled,
+     * and when the window scrolls if the anchor is inside a scrolling parent
+     */
+    boolean updateAnchorPosition() {
+        view.getLocationOnScreen(location);
+        if (location[0] == anchorX && location[1] == anchorY
+                && view.getWidth() == anchorWidth && view.getHeight() == anchorHeight) {
+            return false;
+        }
+        decorView.getGlobalVisibleRect(rootGlobalRect, rootGlobalOffset);
+        computeAnchorRect(anchorRect, rootGlobalOffset);
+        tooltip_view.updateAnchor(anchorRect, decorView.getWidth());
+        return true;
+    }
+
+    /**
+     * The whole anchor, even when a scrolling parent clips part of it,
+     * the tooltip is hidden while the anchor is completely scrolled out
+     */
+    private void computeAnchorRect(Rect rect, Point rootOffset) {
+        //the root offset is in window coordinates
+        view.getLocationInWindow(location);
+        rect.set(location[0], location[1], location[0] + view.getWidth(), location[1] + view.getHeight());
+        rect.offset(-rootOffset.x, -rootOffset.y);
+
+        final boolean anchorVisible = view.getGlobalVisibleRect(anchorVisibleRect);
+        tooltip_view.setVisibility(anchorVisible ? View.VISIBLE : View.INVISIBLE);
+
+        view.getLocationOnScreen(location);
+        anchorX = location[0];
+        anchorY = location[1];
+        anchorWidth = view.getWidth();
+        anchorHeight = view.getHeight();
     }
 
     public void close(){
-        tooltip_view.close();
+        cancelPendingShow();
+        if (isDisplaying()) {
+            tooltip_view.close();
+        } else {
+            discard();
+        }
+    }
+
+    /**
+     * Removes the tooltip without exit animation. Closed during its enter animation, the tooltip never calls onDisplay,
+     * closed during its exit animation, it still calls onHide
+     */
+    public void closeNow() {
+        cancelPendingShow();
+        if (isDisplaying()) {
+            tooltip_view.closeNow();
+        }
+        discard();
+    }
+
+    /**
+     * The tooltip will not be displayed : undoes {@link #bind()} and gives a borrowed view back to its pool
+     */
+    void discard() {
+        unbind();
+        if (tooltip_view != null && tooltip_view.pool != null && tooltip_view.getParent() == null) {
+            final TooltipView tooltipView = tooltip_view;
+            tooltip_view = null;
+            configured = false;
+            tooltipView.pool.release(tooltipView);
+        }
+    }
+
+    /**
+     * @return false once the view is removed, it may already display the tooltip of someone else
+     */
+    private boolean isDisplaying() {
+        return tooltip_view != null && tooltip_view.owner == this && tooltip_view.getParent() != null;
+    }
+
+    /**
+     * The view went back to its pool, the next show() takes another one
+     */
+    void onTooltipViewReleased(TooltipView tooltipView) {
+        if (tooltip_view == tooltipView) {
+            tooltip_view = null;
+            configured = false;
+        }
+    }
+
+    /**
+     * Ties the tooltip to the fragment or activity lifecycle and to the anchor attach state
+     *
+     * @return false when the screen is already destroyed
+     */
+    private boolean bind() {
+        if (lifecycle == null) {
+            lifecycle = myContext.getLifecycle();
+            if (lifecycle != null) {
+                if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+                    lifecycle = null;
+                    return false;
+                }
+                lifecycle.addObserver(lifecycleObserver);
+            }
+        }
+        if (!anchorListenerAdded) {
+            view.addOnAttachStateChangeListener(anchorAttachListener);
+            anchorListenerAdded = true;
+        }
+        TooltipStrictMode.onBind(this);
+        return true;
+    }
+
+    /**
+     * Called once the tooltip is removed, nothing keeps a reference to it anymore
+     */
+    void unbind() {
+        TooltipStrictMode.onUnbind(this);
+        if (lifecycle != null) {
+            lifecycle.removeObserver(lifecycleObserver);
+            lifecycle = null;
+        }
+        if (anchorListenerAdded) {
+            view.removeOnAttachStateChangeListener(anchorAttachListener);
+            anchorListenerAdded = false;
+        }
+        if (tour != null) {
+            final TooltipTour tour = this.tour;
+            this.tour = null;
+            tour.onStepRemoved(this);
+        }
+    }
+
+    /**
+     * A tooltip closed before being displayed must not show up afterwards
+     */
+    boolean isShowPending() {
+        return showPending;
+    }
+
+    private void cancelPendingShow() {
+        showPending = false;
+        view.removeCallbacks(showRunnable);
+        view.getViewTreeObserver().removeOnPreDrawListener(showOnPreDrawListener);
+        if (batch != null) {
+            batch.cancel(this);
+        }
+        if (decorView != null) {
+            TooltipManager.of(decorView).cancel(this);
+        }
     }
 
     public ViewTooltip duration(long duration) {
-        this.tooltip_view.setDuration(duration);
-        return this;
+        style().duration(duration);
+        return applyStyle();
     }
 
     public ViewTooltip color(int color) {
-        this.tooltip_view.setColor(color);
-        return this;
+        style().color(color);
+        return applyStyle();
+    }
+
+    /**
+     * Vertical gradient fitted to the bubble, shared by the tooltips with the same colors and height
+     */
+    public ViewTooltip gradient(@ColorInt int startColor, @ColorInt int endColor) {
+        style().gradient(startColor, endColor);
+        return applyStyle();
     }
 
     public ViewTooltip color(Paint paint) {
-        this.tooltip_view.setPaint(paint);
+        this.paint = paint;
+        if (configured) {
+            tooltip_view.setPaint(paint);
+        }
         return this;
     }
 
     public ViewTooltip onDisplay(ListenerDisplay listener) {
-        this.tooltip_view.setListenerDisplay(listener);
+        this.listenerDisplay = listener;
+        if (configured) {
+            tooltip_view.setListenerDisplay(listener);
+        }
         return this;
     }
 
     public ViewTooltip onHide(ListenerHide listener) {
-        this.tooltip_view.setListenerHide(listener);
+        this.listenerHide = listener;
+        if (configured) {
+            tooltip_view.setListenerHide(listener);
+        }
         return this;
     }
 
     public ViewTooltip padding(int left, int top, int right, int bottom) {
-        this.tooltip_view.paddingTop = top;
-        this.tooltip_view.paddingBottom = bottom;
-        this.tooltip_view.paddingLeft = left;
-        this.tooltip_view.paddingRight = right;
-        return this;
+        style().padding(left, top, right, bottom);
+        return applyStyle();
     }
 
     public ViewTooltip animation(TooltipAnimation tooltipAnimation) {
-        this.tooltip_view.setTooltipAnimation(tooltipAnimation);
+        this.tooltipAnimation = tooltipAnimation;
+        if (configured) {
+            tooltip_view.setTooltipAnimation(tooltipAnimation);
+        }
         return this;
     }
 
     public ViewTooltip text(String text) {
-        this.tooltip_view.setText(text);
+        return text(text, true);
+    }
+
+    /**
+     * @param cacheHtml false to not keep the parsed html of a dynamic text in the {@link HtmlCache}
+     */
+    public ViewTooltip text(String text, boolean cacheHtml) {
+        this.text = text;
+        this.cacheHtml = cacheHtml;
+        this.textRes = 0;
+        if (configured) {
+            tooltip_view.setText(text, cacheHtml);
+        }
         return this;
     }
 
     public ViewTooltip text(@StringRes int text) {
-        this.tooltip_view.setText(text);
+        this.text = null;
+        this.textRes = text;
+        if (configured) {
+            tooltip_view.setText(text);
+        }
         return this;
     }
 
     public ViewTooltip corner(int corner) {
-        this.tooltip_view.setCorner(corner);
-        return this;
+        style().corner(corner);
+        return applyStyle();
     }
 
     public ViewTooltip textColor(int textColor) {
-        this.tooltip_view.setTextColor(textColor);
-        return this;
+        style().textColor(textColor);
+        return applyStyle();
     }
 
     public ViewTooltip textTypeFace(Typeface typeface) {
-        this.tooltip_view.setTextTypeFace(typeface);
-        return this;
+        style().typeface(typeface);
+        return applyStyle();
     }
 
     public ViewTooltip textSize(int unit, float textSize) {
-        this.tooltip_view.setTextSize(unit, textSize);
-        return this;
+        style().textSize(myContext.getContext(), unit, textSize);
+        return applyStyle();
     }
 
+    /**
+     * @throws IllegalStateException once shown or prepared, the margin is added to the padding of the view
+     */
     public ViewTooltip margin(int left, int top, int right, int bottom) {
-        this.tooltip_view.setMargin(left, top, right, bottom);
+        if (configured) {
+            throw new IllegalStateException("margin() must be called before show() or prepare()");
+        }
+        this.margin = new int[]{left, top, right, bottom};
         return this;
     }
 
     public ViewTooltip setTextGravity (int textGravity) {
-        this.tooltip_view.setTextGravity(textGravity);
-        return this;
+        style().textGravity(textGravity);
+        return applyStyle();
     }
 
     public ViewTooltip clickToHide(boolean clickToHide) {
-        this.tooltip_view.setClickToHide(clickToHide);
-        return this;
+        style().clickToHide(clickToHide);
+        return applyStyle();
     }
 
     public ViewTooltip autoHide(boolean autoHide, long duration) {
-        this.tooltip_view.setAutoHide(autoHide);
-        this.tooltip_view.setDuration(duration);
-        return this;
+        style().autoHide(autoHide, duration);
+        return applyStyle();
     }
 
     public ViewTooltip distanceWithView(int distance) {
-        this.tooltip_view.setDistanceWithView(distance);
-        return this;
+        style().distanceWithView(distance);
+        return applyStyle();
     }
 
     public ViewTooltip border(int color,float width){
-        Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        borderPaint.setColor(color);
-        borderPaint.setStyle(Paint.Style.STROKE);
-        borderPaint.setStrokeWidth(width);
-        this.tooltip_view.setBorderPaint(borderPaint);
-        return this;
+        style().border(color, width);
+        return applyStyle();
     }
 
     public enum Position {
@@ -325,6 +911,41 @@ public class ViewTooltip {
         END
     }
 
+    public enum Duplicate {
+        /**
+         * Shows the tooltip next to the existing ones
+         */
+        ALLOW,
+        /**
+         * Removes the tooltips already displayed on the anchor
+         */
+        REPLACE,
+        /**
+         * Drops the tooltip if the anchor already has one
+         */
+        IGNORE
+    }
+
+    /**
+     * SOFTWARE draws the shadow with Paint.setShadowLayer on a software layer.
+     * HARDWARE keeps the tooltip on the hardware pipeline and casts the shadow from the rounded body of the bubble
+     * (elevation), the arrow casts no shadow. Falls back to SOFTWARE before Lollipop.
+     */
+    public enum RenderMode {
+        SOFTWARE,
+        HARDWARE
+    }
+
+    /**
+     * DECOR_VIEW adds the tooltip as a child of the root view, which relayouts the window.
+     * OVERLAY draws it in the root view overlay and lays it out on its own, the app layout is never invalidated,
+     * but an overlay does not receive touch events : clickToHide is ignored. Falls back to DECOR_VIEW before API 18.
+     */
+    public enum AttachMode {
+        DECOR_VIEW,
+        OVERLAY
+    }
+
     public interface TooltipAnimation {
         void animateEnter(View view, Animator.AnimatorListener animatorListener);
 
@@ -353,80 +974,327 @@ public class ViewTooltip {
         @Override
         public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
             view.setAlpha(0);
-            view.animate().alpha(1).setDuration(fadeDuration).setListener(animatorListener);
+            animateWithLayer(view).alpha(1).setDuration(fadeDuration).setListener(animatorListener);
         }
 
         @Override
         public void animateExit(View view, Animator.AnimatorListener animatorListener) {
-            view.animate().alpha(0).setDuration(fadeDuration).setListener(animatorListener);
+            animateWithLayer(view).alpha(0).setDuration(fadeDuration).setListener(animatorListener);
         }
     }
 
+    /**
+     * Grows from the tip of the arrow while fading in
+     */
+    public static class ScaleTooltipAnimation implements TooltipAnimation {
+
+        private long duration = 300;
+
+        public ScaleTooltipAnimation() {
+        }
+
+        public ScaleTooltipAnimation(long duration) {
+            this.duration = duration;
+        }
+
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            pivotOnArrow(view);
+            view.setAlpha(0);
+            view.setScaleX(0);
+            view.setScaleY(0);
+            animateWithLayer(view).alpha(1).scaleX(1).scaleY(1).setDuration(duration).setListener(animatorListener);
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            pivotOnArrow(view);
+            animateWithLayer(view).alpha(0).scaleX(0).scaleY(0).setDuration(duration).setListener(animatorListener);
+        }
+
+        private static void pivotOnArrow(View view) {
+            if (view instanceof TooltipView) {
+                final TooltipView tooltipView = (TooltipView) view;
+                view.setPivotX(tooltipView.getArrowTipX());
+                view.setPivotY(tooltipView.getArrowTipY());
+            }
+        }
+    }
+
+    /**
+     * Slides out of the anchor while fading in.
+     * The slide uses the translation placing the tooltip, an anchor moving during the animation is followed once it ends
+     */
+    public static class SlideTooltipAnimation implements TooltipAnimation {
+
+        private long duration = 300;
+        private float distance = 40;
+
+        public SlideTooltipAnimation() {
+        }
+
+        /**
+         * @param distance in pixels
+         */
+        public SlideTooltipAnimation(long duration, float distance) {
+            this.duration = duration;
+            this.distance = distance;
+        }
+
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            final ViewPropertyAnimator animator = animateWithLayer(view);
+            view.setAlpha(0);
+            if (isVertical(view)) {
+                final float translationY = view.getTranslationY();
+                view.setTranslationY(translationY - slideDirection(view) * distance);
+                animator.translationY(translationY);
+            } else {
+                final float translationX = view.getTranslationX();
+                view.setTranslationX(translationX - slideDirection(view) * distance);
+                animator.translationX(translationX);
+            }
+            animator.alpha(1).setDuration(duration).setListener(animatorListener);
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            final ViewPropertyAnimator animator = animateWithLayer(view);
+            if (isVertical(view)) {
+                animator.translationYBy(-slideDirection(view) * distance);
+            } else {
+                animator.translationXBy(-slideDirection(view) * distance);
+            }
+            animator.alpha(0).setDuration(duration).setListener(animatorListener);
+        }
+
+        private static Position getPosition(View view) {
+            return view instanceof TooltipView ? ((TooltipView) view).getPosition() : Position.BOTTOM;
+        }
+
+        private static boolean isVertical(View view) {
+            final Position position = getPosition(view);
+            return position == Position.TOP || position == Position.BOTTOM;
+        }
+
+        /**
+         * @return 1 when the tooltip is after its anchor (right or bottom), -1 before
+         */
+        private static int slideDirection(View view) {
+            final Position position = getPosition(view);
+            return position == Position.BOTTOM || position == Position.RIGHT ? 1 : -1;
+        }
+    }
+
+    /**
+     * Animates on a hardware layer, the content is drawn once instead of on every frame.
+     * A view already in a software layer keeps it, the shadow of its paint needs it below Android P
+     */
+    static ViewPropertyAnimator animateWithLayer(View view) {
+        final ViewPropertyAnimator animator = view.animate();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN && view.getLayerType() == View.LAYER_TYPE_NONE) {
+            animator.withLayer();
+        }
+        return animator;
+    }
+
     public static class TooltipView extends FrameLayout {
 
-        private static final int MARGIN_SCREEN_BORDER_TOOLTIP = 30;
-        private int arrowHeight = 15;
-        private int arrowWidth = 15;
-        private int arrowSourceMargin = 0;
-        private int arrowTargetMargin = 0;
+        //the fade keeps no state, every view shares it
+        private static final TooltipAnimation DEFAULT_ANIMATION = new FadeTooltipAnimation();
+
+        private final TooltipLayoutEngine layoutEngine = new TooltipLayoutEngine();
+        private final PathAdapter pathAdapter = new PathAdapter();
         protected View childView;
-        private int color = Color.parseColor("#1F7C82");
-        private Path bubblePath;
+        private final TextView textView;
+        private FlatText flatText;
+        private final float defaultTextSize;
+        private final int defaultTextGravity;
+        private final Typeface defaultTypeface;
+        private int color;
+        private final Path bubblePath = new Path();
+        private int bubbleWidth;
+        private int bubbleHeight;
+        private int gradientEndColor;
+        private int borderColor;
+        private float borderWidth;
+        //set by the app, drawn instead of the shared paints
+        private Paint customPaint;
+        private Paint customBorderPaint;
+        private TooltipPaints.Entry fillEntry;
+        private TooltipPaints.Entry borderEntry;
+        private boolean paintsDirty;
         private Paint bubblePaint;
         private Paint borderPaint;
-        private Position position = Position.BOTTOM;
-        private ALIGN align = ALIGN.CENTER;
+        private Position position;
         private boolean clickToHide;
-        private boolean autoHide = true;
-        private long duration = 4000;
+        private boolean autoHide;
+        private long duration;
 
         private ListenerDisplay listenerDisplay;
 
         private ListenerHide listenerHide;
 
-        private TooltipAnimation tooltipAnimation = new FadeTooltipAnimation();
+        private TooltipAnimation tooltipAnimation;
 
-        private int corner = 30;
-
-        private int paddingTop = 20;
-        private int paddingBottom = 30;
-        private int paddingRight = 30;
-        private int paddingLeft = 30;
-
-        private int marginTop = 0;
-        private int marginBottom = 0;
-        private int marginRight = 0;
-        private int marginLeft = 0;
+        private int paddingTop;
+        private int paddingBottom;
+        private int paddingRight;
+        private int paddingLeft;
 
         int shadowPadding = 4;
         int shadowWidth = 8;
 
-        private Rect viewRect;
-        private int distanceWithView = 0;
-        private int shadowColor = Color.parseColor("#aaaaaa");
+        private final Rect viewRect = new Rect();
+        private final Rect adjustedRect = new Rect();
+        private boolean hasViewRect;
+        private int containerHeight;
+        //what the pinned size was measured against, a moving anchor keeps that size
+        private int measuredScreenWidth;
+        private int measuredContainerHeight;
+        private boolean contentChanged;
+        private int shadowColor;
+        private boolean withShadow;
+        private RenderMode renderMode;
+        TooltipPool pool;
+        TooltipManager manager;
+        ViewTooltip owner;
+        ViewGroup overlayHost;
+        TooltipMetrics metrics;
+        long requestTime;
+        long attachTime;
+        private long firstDrawTime;
+        private long animationStart;
+        long expiryTime;
+        private final RectF bubbleRect = new RectF();
+        private final RectF bubbleBounds = new RectF();
+        private TextMeasurer.Measurement preparedText;
+
+        //enter or exit animation running, null once it ended
+        private Transition transition;
+        //each view reuses its two transitions, a cancelled one no longer listens to its animator
+        private final Transition enterTransition = new Transition(true);
+        private final Transition exitTransition = new Transition(false);
+        private Animator.AnimatorListener exitAnimatorListener;
+        private boolean removing;
+
+        private final Animator.AnimatorListener removeAnimatorListener = new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                super.onAnimationEnd(animation);
+                removeNow();
+            }
+        };
+
+        private final OnClickListener clickToHideListener = new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                if (clickToHide) {
+                    remove();
+                }
+            }
+        };
+
+        private boolean autoHidePending;
+        private final Runnable autoHideRunnable = new Runnable() {
+            @Override
+            public void run() {
+                autoHidePending = false;
+                remove();
+            }
+        };
 
         public TooltipView(Context context) {
             super(context);
             setWillNotDraw(false);
 
-            this.childView = new TextView(context);
-            ((TextView) childView).setTextColor(Color.WHITE);
-            addView(childView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-            childView.setPadding(0, 0, 0, 0);
-
-            bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-            bubblePaint.setColor(color);
-            bubblePaint.setStyle(Paint.Style.FILL);
-
-            borderPaint = null;
+            this.textView = new TextView(context);
+            this.defaultTextSize = textView.getTextSize();
+            this.defaultTextGravity = textView.getGravity();
+            this.defaultTypeface = textView.getTypeface();
 
-            setLayerType(LAYER_TYPE_SOFTWARE, bubblePaint);
-
-            setWithShadow(true);
+            reset();
+        }
 
+        /**
+         * Puts every setting back to its default value, used when the view comes back to a {@link TooltipPool}
+         */
+        void reset() {
+            removeCallbacks(autoHideRunnable);
+            autoHidePending = false;
+            manager = null;
+            owner = null;
+            overlayHost = null;
+            metrics = null;
+            requestTime = 0;
+            attachTime = 0;
+            firstDrawTime = 0;
+            expiryTime = 0;
+            //the previous owner already got its callbacks from removeNow()
+            cancelTransition(false);
+            exitAnimatorListener = null;
+            removing = false;
+            setOnClickListener(null);
+            setClickable(false);
+            setVisibility(VISIBLE);
+            setAlpha(1);
+            setScaleX(1);
+            setScaleY(1);
+            setTranslationX(0);
+            setTranslationY(0);
+            setPadding(0, 0, 0, 0);
+
+            flatText = null;
+            if (childView != textView) {
+                if (childView != null) {
+                    removeView(childView);
+                }
+                this.childView = textView;
+                addView(textView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            }
+            clearPreparedText();
+            textView.setText(null);
+            textView.setTextColor(Color.WHITE);
+            textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, defaultTextSize);
+            textView.setGravity(defaultTextGravity);
+            textView.setTypeface(defaultTypeface);
+            textView.setPadding(0, 0, 0, 0);
+
+            layoutEngine.reset();
+            color = Color.parseColor("#1F7C82");
+            position = Position.BOTTOM;
+            clickToHide = false;
+            autoHide = true;
+            duration = 4000;
+            listenerDisplay = null;
+            listenerHide = null;
+            tooltipAnimation = DEFAULT_ANIMATION;
+            paddingTop = 20;
+            paddingBottom = 30;
+            paddingRight = 30;
+            paddingLeft = 30;
+
+            hasViewRect = false;
+            containerHeight = 0;
+            bubbleWidth = 0;
+            bubbleHeight = 0;
+            bubblePath.rewind();
+
+            releasePaints();
+            gradientEndColor = color;
+            borderWidth = 0;
+            customPaint = null;
+            customBorderPaint = null;
+
+            shadowColor = Color.parseColor("#aaaaaa");
+            withShadow = true;
+            renderMode = RenderMode.SOFTWARE;
+            applyRenderMode();
         }
 
         public void setCustomView(View customView) {
+            clearPreparedText();
+            flatText = null;
             this.removeView(childView);
             this.childView = customView;
             addView(childView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
@@ -434,33 +1302,209 @@ public class ViewTooltip {
 
         public void setColor(int color) {
             this.color = color;
-            bubblePaint.setColor(color);
-            postInvalidate();
+            this.gradientEndColor = color;
+            invalidatePaints();
+        }
+
+        /**
+         * Vertical gradient fitted to the bubble, from its top to its bottom
+         */
+        public void setGradient(int startColor, int endColor) {
+            this.color = startColor;
+            this.gradientEndColor = endColor;
+            invalidatePaints();
         }
 
         public void setShadowColor(int color) {
             this.shadowColor = color;
-            postInvalidate();
+            applyShadow();
+        }
+
+        /**
+         * Draws the text without a child TextView, ignored with a custom view
+         */
+        public void setFlat(boolean flat) {
+            if (flat == (flatText != null) || childView != textView && flatText == null) {
+                return;
+            }
+            clearPreparedText();
+            if (flat) {
+                flatText = new FlatText(getResources().getDisplayMetrics().density);
+                flatText.setText(textView.getText());
+                flatText.setTextColor(textView.getCurrentTextColor());
+                flatText.setTextSize(textView.getTextSize());
+                flatText.setTypeface(textView.getTypeface());
+                flatText.setGravity(textView.getGravity());
+                flatText.setPadding(textView.getPaddingLeft(), textView.getPaddingTop(), textView.getPaddingRight(), textView.getPaddingBottom());
+                removeView(textView);
+                childView = null;
+            } else {
+                textView.setText(flatText.getText());
+                textView.setTextColor(flatText.getTextColor());
+                textView.setTextSize(TypedValue.COMPLEX_UNIT_PX, flatText.getTextSize());
+                textView.setTypeface(flatText.getTypeface());
+                textView.setGravity(flatText.getGravity());
+                textView.setPadding(flatText.getPaddingLeft(), flatText.getPaddingTop(), flatText.getPaddingRight(), flatText.getPaddingBottom());
+                flatText = null;
+                childView = textView;
+                addView(textView, ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+            }
+            requestLayout();
         }
 
         public void setMargin(int left, int top, int right, int bottom) {
-            this.marginLeft = left;
-            this.marginTop = top;
-            this.marginRight = right;
-            this.marginBottom = top;
+            layoutEngine.setMargin(left, top, right, bottom);
 
+            if (flatText != null) {
+                flatText.setPadding(flatText.getPaddingLeft() + left, flatText.getPaddingTop() + top, flatText.getPaddingRight() + right, flatText.getPaddingBottom() + bottom);
+                requestLayout();
+                return;
+            }
             childView.setPadding(childView.getPaddingLeft() + left, childView.getPaddingTop() + top, childView.getPaddingRight() + right, childView.getPaddingBottom() + bottom);
             postInvalidate();
         }
 
         public void setPaint(Paint paint) {
-            bubblePaint = paint;
-            setLayerType(LAYER_TYPE_SOFTWARE, paint);
+            customPaint = paint;
+            if (!useOutlineShadow()) {
+                setLayerType(LAYER_TYPE_SOFTWARE, paint);
+            }
+            invalidatePaints();
+        }
+
+        /**
+         * The paints are resolved on the next draw, once the bubble bounds are known
+         */
+        private void invalidatePaints() {
+            paintsDirty = true;
             postInvalidate();
         }
 
+        /**
+         * Takes the shared paints matching the current colors, shadow and bubble bounds
+         */
+        private void updatePaints() {
+            final TooltipPaints.Entry previousFill = fillEntry;
+            final TooltipPaints.Entry previousBorder = borderEntry;
+            fillEntry = null;
+            borderEntry = null;
+            if (customPaint != null) {
+                bubblePaint = customPaint;
+            } else {
+                final float shadowRadius = withShadow && !useOutlineShadow() ? shadowWidth : 0;
+                fillEntry = TooltipPaints.acquireFill(color, gradientEndColor, bubbleBounds.top, bubbleBounds.bottom, shadowRadius, shadowColor);
+                bubblePaint = fillEntry.paint;
+            }
+            if (customBorderPaint != null) {
+                borderPaint = customBorderPaint;
+            } else if (borderWidth > 0) {
+                borderEntry = TooltipPaints.acquireBorder(borderColor, borderWidth);
+                borderPaint = borderEntry.paint;
+            } else {
+                borderPaint = null;
+            }
+            //acquired before releasing, an unchanged entry is not recreated
+            TooltipPaints.release(previousFill);
+            TooltipPaints.release(previousBorder);
+            paintsDirty = false;
+        }
+
+        private void releasePaints() {
+            TooltipPaints.release(fillEntry);
+            TooltipPaints.release(borderEntry);
+            fillEntry = null;
+            borderEntry = null;
+            bubblePaint = null;
+            borderPaint = null;
+            paintsDirty = true;
+        }
+
+        @Override
+        protected void onDetachedFromWindow() {
+            super.onDetachedFromWindow();
+            releasePaints();
+        }
+
+        public void setRenderMode(RenderMode renderMode) {
+            this.renderMode = renderMode;
+            applyRenderMode();
+        }
+
+        private boolean useOutlineShadow() {
+            return renderMode == RenderMode.HARDWARE && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+        }
+
+        private void applyRenderMode() {
+            if (useOutlineShadow()) {
+                setLayerType(LAYER_TYPE_NONE, null);
+                setOutlineProvider(new BubbleOutlineProvider());
+            } else {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    setOutlineProvider(ViewOutlineProvider.BACKGROUND);
+                }
+                setLayerType(LAYER_TYPE_SOFTWARE, customPaint);
+            }
+            applyShadow();
+        }
+
+        private void applyShadow() {
+            if (useOutlineShadow()) {
+                if (customPaint != null) {
+                    customPaint.setShadowLayer(0, 0, 0, Color.TRANSPARENT);
+                }
+                setElevation(withShadow ? shadowWidth : 0);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                    setOutlineAmbientShadowColor(shadowColor);
+                    setOutlineSpotShadowColor(shadowColor);
+                }
+            } else {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    setElevation(0);
+                }
+                //the shared paints get their shadow in updatePaints()
+                if (customPaint != null) {
+                    if (withShadow) {
+                        customPaint.setShadowLayer(shadowWidth, 0, 0, shadowColor);
+                    } else {
+                        customPaint.setShadowLayer(0, 0, 0, Color.TRANSPARENT);
+                    }
+                }
+            }
+            invalidatePaints();
+        }
+
+        /**
+         * The body with its arrow is never convex, an outline can only cast the shadow of the rounded body
+         */
+        @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+        private void getBubbleOutline(Outline outline) {
+            outline.setRoundRect(
+                    Math.round(bubbleRect.left),
+                    Math.round(bubbleRect.top),
+                    Math.round(bubbleRect.right),
+                    Math.round(bubbleRect.bottom),
+                    layoutEngine.getCorner() / 2f);
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+
+        /**
+         * @return the tip of the arrow in the view, once the bubble is built
+         */
+        float getArrowTipX() {
+            return layoutEngine.getArrowVertex(2);
+        }
+
+        float getArrowTipY() {
+            return layoutEngine.getArrowVertex(3);
+        }
+
         public void setPosition(Position position) {
             this.position = position;
+            layoutEngine.setPosition(position.ordinal());
+            final int arrowHeight = layoutEngine.getArrowHeight();
             switch (position){
                 case TOP:
                     setPadding(paddingLeft, paddingTop, paddingRight, paddingBottom + arrowHeight);
@@ -478,84 +1522,126 @@ public class ViewTooltip {
             postInvalidate();
         }
 
+        /**
+         * Space between the bubble and its content, applied by the next {@link #setPosition(Position)}
+         */
+        void setBubblePadding(int left, int top, int right, int bottom) {
+            this.paddingTop = top;
+            this.paddingBottom = bottom;
+            this.paddingLeft = left;
+            this.paddingRight = right;
+        }
+
         public void setAlign(ALIGN align) {
-            this.align = align;
+            layoutEngine.setAlign(align.ordinal());
             postInvalidate();
         }
 
         public void setText(String text) {
-            if (childView instanceof TextView) {
-                ((TextView) this.childView).setText(Html.fromHtml(text));
+            setText(text, true);
+        }
+
+        /**
+         * @param cacheHtml false for texts displayed once, they would only evict the others from the {@link HtmlCache}
+         */
+        public void setText(String text, boolean cacheHtml) {
+            clearPreparedText();
+            if (flatText != null) {
+                flatText.setText(cacheHtml
+                        ? HtmlCache.getInstance().fromHtml(getContext(), text)
+                        : HtmlCache.parse(text));
+                requestLayout();
+            } else if (childView instanceof TextView) {
+                ((TextView) this.childView).setText(cacheHtml
+                        ? HtmlCache.getInstance().fromHtml(getContext(), text)
+                        : HtmlCache.parse(text));
             }
             postInvalidate();
         }
 
         public void setText(int text) {
-            if (childView instanceof TextView) {
+            clearPreparedText();
+            if (flatText != null) {
+                flatText.setText(getResources().getText(text));
+                requestLayout();
+            } else if (childView instanceof TextView) {
                 ((TextView) this.childView).setText(text);
             }
             postInvalidate();
         }
 
         public void setTextColor(int textColor) {
-            if (childView instanceof TextView) {
+            if (flatText != null) {
+                flatText.setTextColor(textColor);
+            } else if (childView instanceof TextView) {
                 ((TextView) this.childView).setTextColor(textColor);
             }
             postInvalidate();
         }
 
         public int getArrowHeight() {
-            return arrowHeight;
+            return layoutEngine.getArrowHeight();
         }
 
         public void setArrowHeight(int arrowHeight) {
-            this.arrowHeight = arrowHeight;
+            layoutEngine.setArrowHeight(arrowHeight);
             postInvalidate();
         }
 
         public int getArrowWidth() {
-            return arrowWidth;
+            return layoutEngine.getArrowWidth();
         }
 
         public void setArrowWidth(int arrowWidth) {
-            this.arrowWidth = arrowWidth;
+            layoutEngine.setArrowWidth(arrowWidth);
             postInvalidate();
         }
 
         public int getArrowSourceMargin() {
-            return arrowSourceMargin;
+            return layoutEngine.getArrowSourceMargin();
         }
 
         public void setArrowSourceMargin(int arrowSourceMargin) {
-            this.arrowSourceMargin = arrowSourceMargin;
+            layoutEngine.setArrowSourceMargin(arrowSourceMargin);
             postInvalidate();
         }
 
         public int getArrowTargetMargin() {
-            return arrowTargetMargin;
+            return layoutEngine.getArrowTargetMargin();
         }
 
         public void setArrowTargetMargin(int arrowTargetMargin) {
-            this.arrowTargetMargin = arrowTargetMargin;
+            layoutEngine.setArrowTargetMargin(arrowTargetMargin);
             postInvalidate();
         }
 
         public void setTextTypeFace(Typeface textTypeFace) {
-            if (childView instanceof TextView) {
+            clearPreparedText();
+            if (flatText != null) {
+                flatText.setTypeface(textTypeFace);
+                requestLayout();
+            } else if (childView instanceof TextView) {
                 ((TextView) this.childView).setTypeface(textTypeFace);
             }
             postInvalidate();
         }
 
         public void setTextSize(int unit, float size) {
-            if (childView instanceof TextView) {
+            clearPreparedText();
+            if (flatText != null) {
+                flatText.setTextSize(TypedValue.applyDimension(unit, size, getResources().getDisplayMetrics()));
+                requestLayout();
+            } else if (childView instanceof TextView) {
                 ((TextView) this.childView).setTextSize(unit, size);
             }
             postInvalidate();
         }
 
         public void setTextGravity(int textGravity) {
-            if (childView instanceof TextView) {
+            if (flatText != null) {
+                flatText.setGravity(textGravity);
+                requestLayout();
+            } else if (childView instanceof TextView) {
                 ((TextView) this.childView).setGravity(textGravity);
             }
             postInvalidate();
@@ -566,26 +1652,103 @@ public class ViewTooltip {
         }
 
         public void setCorner(int corner) {
-            this.corner = corner;
+            layoutEngine.setCorner(corner);
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            final boolean measured = TooltipMetrics.isEnabled(metrics);
+            final long start = measured ? System.nanoTime() : 0;
+            if (flatText == null) {
+                super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            } else {
+                final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+                final int maxWidth = MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED
+                        ? Integer.MAX_VALUE
+                        : MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding;
+                flatText.measure(maxWidth);
+                setMeasuredDimension(resolveSize(flatText.getWidth() + horizontalPadding, widthMeasureSpec),
+                        resolveSize(flatText.getHeight() + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+            }
+            if (measured) {
+                TooltipMetrics.dispatchMeasure(metrics, this, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            final boolean measured = TooltipMetrics.isEnabled(metrics);
+            final long start = measured ? System.nanoTime() : 0;
+            super.onLayout(changed, left, top, right, bottom);
+            if (measured) {
+                TooltipMetrics.dispatchLayout(metrics, this, System.nanoTime() - start);
+            }
+        }
+
+        @Override
+        public void requestLayout() {
+            super.requestLayout();
+            //the text, the custom view or the padding changed, the pinned size has to be measured again
+            contentChanged = true;
         }
 
         @Override
         protected void onSizeChanged(int width, int height, int oldw, int oldh) {
             super.onSizeChanged(width, height, oldw, oldh);
 
-            bubblePath = drawBubble(new RectF(shadowPadding, shadowPadding, width - shadowPadding * 2, height - shadowPadding * 2), corner, corner, corner, corner);
+            //setup() already built the bubble for the measured size
+            if (width != bubbleWidth || height != bubbleHeight) {
+                rebuildBubble(width, height);
+            }
+        }
+
+        private void rebuildBubble(int width, int height) {
+            final boolean measured = TooltipMetrics.isEnabled(metrics);
+            final long start = measured ? System.nanoTime() : 0;
+            bubbleWidth = width;
+            bubbleHeight = height;
+            bubbleBounds.set(shadowPadding, shadowPadding, width - shadowPadding * 2f, height - shadowPadding * 2f);
+            drawBubble(bubblePath, bubbleBounds);
+            if (gradientEndColor != color) {
+                //the gradient follows the new bounds
+                paintsDirty = true;
+            }
+            if (useOutlineShadow()) {
+                invalidateOutline();
+            }
+            if (measured) {
+                TooltipMetrics.dispatchBubbleBuilt(metrics, this, System.nanoTime() - start);
+            }
         }
 
         @Override
         protected void onDraw(Canvas canvas) {
+            TooltipMetrics.beginSection("ViewTooltip.onDraw");
+            final boolean measured = TooltipMetrics.isEnabled(metrics);
+            final long start = measured ? System.nanoTime() : 0;
             super.onDraw(canvas);
 
-            if (bubblePath != null) {
+            if (!bubblePath.isEmpty()) {
+                if (paintsDirty) {
+                    updatePaints();
+                }
                 canvas.drawPath(bubblePath, bubblePaint);
                 if(borderPaint != null){
                     canvas.drawPath(bubblePath,borderPaint);
                 }
             }
+            if (flatText != null) {
+                flatText.draw(canvas, getPaddingLeft(), getPaddingTop(), getHeight() - getPaddingTop() - getPaddingBottom());
+            }
+
+            if (measured) {
+                final long now = System.nanoTime();
+                if (attachTime != 0 && firstDrawTime == 0) {
+                    firstDrawTime = start;
+                }
+                TooltipMetrics.dispatchDraw(metrics, this, now - start);
+            }
+            TooltipMetrics.endSection();
         }
 
         public void setListenerDisplay(ListenerDisplay listener) {
@@ -601,272 +1764,423 @@ public class ViewTooltip {
         }
 
         protected void startEnterAnimation() {
-            tooltipAnimation.animateEnter(this, new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    if (listenerDisplay != null) {
-                        listenerDisplay.onDisplay(TooltipView.this);
-                    }
-                }
-            });
+            cancelTransition(true);
+            animationStart = TooltipMetrics.isEnabled(metrics) ? System.nanoTime() : 0;
+            transition = enterTransition.start();
+            tooltipAnimation.animateEnter(this, transition);
         }
 
+        /**
+         * Interrupts the enter animation where it is, the exit animation starts from there
+         */
         protected void startExitAnimation(final Animator.AnimatorListener animatorListener) {
-            tooltipAnimation.animateExit(this, new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    animatorListener.onAnimationEnd(animation);
-                    if (listenerHide != null) {
-                        listenerHide.onHide(TooltipView.this);
-                    }
-                }
-            });
+            cancelTransition(true);
+            this.exitAnimatorListener = animatorListener;
+            animationStart = TooltipMetrics.isEnabled(metrics) ? System.nanoTime() : 0;
+            transition = exitTransition.start();
+            tooltipAnimation.animateExit(this, transition);
         }
 
-        protected void handleAutoRemove() {
-            if (clickToHide) {
-                setOnClickListener(new OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        if (clickToHide) {
-                            remove();
-                        }
-                    }
-                });
+        /**
+         * @param notify true to end the interrupted transition with its callback, a transition never gets two
+         */
+        private void cancelTransition(boolean notify) {
+            final Transition transition = this.transition;
+            this.transition = null;
+            if (transition == null) {
+                return;
             }
-
-            if (autoHide) {
-                postDelayed(new Runnable() {
-                    @Override
-                    public void run() {
-                        remove();
-                    }
-                }, duration);
+            //the callbacks of the cancelled animators are ignored, the transition is already finished
+            transition.finished = true;
+            animate().setListener(null);
+            animate().cancel();
+            if (transition.animator != null) {
+                transition.animator.removeListener(transition);
+                transition.animator.cancel();
+            }
+            if (notify) {
+                transition.finished = false;
+                transition.finish(null);
             }
         }
 
-        public void remove() {
-            startExitAnimation(new AnimatorListenerAdapter() {
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    super.onAnimationEnd(animation);
-                    removeNow();
+        private void onEnterEnd() {
+            if (TooltipMetrics.isEnabled(metrics)) {
+                final long now = System.nanoTime();
+                TooltipMetrics.dispatchAnimationEnd(metrics, TooltipView.this, true, now - animationStart);
+                if (requestTime != 0 && attachTime != 0) {
+                    final long firstDraw = firstDrawTime != 0 ? firstDrawTime : now;
+                    TooltipMetrics.dispatchDisplayed(metrics, TooltipView.this, attachTime - requestTime, firstDraw - attachTime, now - firstDraw);
                 }
-            });
+            }
+            if (listenerDisplay != null) {
+                listenerDisplay.onDisplay(TooltipView.this);
+            }
         }
 
-        public void setDuration(long duration) {
-            this.duration = duration;
+        private void onExitEnd(Animator animation) {
+            if (TooltipMetrics.isEnabled(metrics)) {
+                TooltipMetrics.dispatchAnimationEnd(metrics, TooltipView.this, false, System.nanoTime() - animationStart);
+            }
+            final Animator.AnimatorListener animatorListener = exitAnimatorListener;
+            //removing the view may recycle it and clear the listener
+            final ListenerHide listenerHide = TooltipView.this.listenerHide;
+            exitAnimatorListener = null;
+            if (animatorListener != null) {
+                animatorListener.onAnimationEnd(animation);
+            }
+            if (listenerHide != null) {
+                listenerHide.onHide(TooltipView.this);
+            }
         }
 
-        public void setAutoHide(boolean autoHide) {
-            this.autoHide = autoHide;
-        }
+        /**
+         * Listener given to the {@link TooltipAnimation}, ends its transition once : at the end of the animation or when it is interrupted
+         */
+        private final class Transition extends AnimatorListenerAdapter {
+            private final boolean enter;
+            private boolean finished;
+            //whatever the TooltipAnimation runs : an ObjectAnimator, an AnimatorSet or the one behind animate()
+            private Animator animator;
+
+            Transition(boolean enter) {
+                this.enter = enter;
+            }
 
-        public void setupPosition(Rect rect) {
+            Transition start() {
+                finished = false;
+                animator = null;
+                return this;
+            }
 
-            int x, y;
+            @Override
+            public void onAnimationStart(Animator animation) {
+                animator = animation;
+            }
 
-            if (position == Position.LEFT || position == Position.RIGHT) {
-                if (position == Position.LEFT) {
-                    x = rect.left - getWidth() - distanceWithView;
-                } else {
-                    x = rect.right + distanceWithView;
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                finish(animation);
+            }
+
+            void finish(Animator animation) {
+                if (finished) {
+                    return;
                 }
-                y = rect.top + getAlignOffset(getHeight(), rect.height());
-            } else {
-                if (position == Position.BOTTOM) {
-                    y = rect.bottom + distanceWithView;
-                } else { // top
-                    y = rect.top - getHeight() - distanceWithView;
+                finished = true;
+                if (transition == this) {
+                    transition = null;
+                }
+                if (enter) {
+                    onEnterEnd();
+                } else {
+                    onExitEnd(animation);
                 }
-                x = rect.left + getAlignOffset(getWidth(), rect.width());
             }
-
-            setTranslationX(x);
-            setTranslationY(y);
         }
 
-        private int getAlignOffset(int myLength, int hisLength) {
-            switch (align) {
-                case END:    return hisLength - myLength;
-                case CENTER: return (hisLength - myLength) / 2;
+        protected void handleAutoRemove() {
+            if (clickToHide) {
+                setOnClickListener(clickToHideListener);
             }
-            return 0;
-        }
-
-        private Path drawBubble(RectF myRect, float topLeftDiameter, float topRightDiameter, float bottomRightDiameter, float bottomLeftDiameter) {
-            final Path path = new Path();
-
-            if(viewRect == null)
-                return path;
-
-            topLeftDiameter = topLeftDiameter < 0 ? 0 : topLeftDiameter;
-            topRightDiameter = topRightDiameter < 0 ? 0 : topRightDiameter;
-            bottomLeftDiameter = bottomLeftDiameter < 0 ? 0 : bottomLeftDiameter;
-            bottomRightDiameter = bottomRightDiameter < 0 ? 0 : bottomRightDiameter;
 
-            final float spacingLeft = this.position == Position.RIGHT ? arrowHeight : marginLeft;
-            final float spacingTop = this.position == Position.BOTTOM ? arrowHeight : marginTop;
-            final float spacingRight = this.position == Position.LEFT ? arrowHeight : marginRight;
-            final float spacingBottom = this.position == Position.TOP ? arrowHeight : marginBottom;
-
-            final float left = spacingLeft + myRect.left;
-            final float top = spacingTop + myRect.top;
-            final float right = myRect.right - spacingRight;
-            final float bottom = myRect.bottom - spacingBottom;
-            final float centerX = viewRect.centerX() - getX();
-
-            final float arrowSourceX = (Arrays.asList(Position.TOP, Position.BOTTOM).contains(this.position))
-                    ? centerX + arrowSourceMargin
-                    : centerX;
-            final float arrowTargetX = (Arrays.asList(Position.TOP, Position.BOTTOM).contains(this.position))
-                    ? centerX + arrowTargetMargin
-                    : centerX;
-            final float arrowSourceY = (Arrays.asList(Position.RIGHT, Position.LEFT).contains(this.position))
-                    ? bottom / 2f - arrowSourceMargin
-                    : bottom / 2f;
-            final float arrowTargetY = (Arrays.asList(Position.RIGHT, Position.LEFT).contains(this.position))
-                    ? bottom / 2f - arrowTargetMargin
-                    : bottom / 2f;
-
-            path.moveTo(left + topLeftDiameter / 2f, top);
-            //LEFT, TOP
-
-            if (position == Position.BOTTOM) {
-                path.lineTo(arrowSourceX - arrowWidth, top);
-                path.lineTo(arrowTargetX, myRect.top);
-                path.lineTo(arrowSourceX + arrowWidth, top);
+            if (autoHide) {
+                if (manager != null) {
+                    manager.scheduleExpiry(this, duration);
+                } else {
+                    postDelayed(autoHideRunnable, duration);
+                    autoHidePending = true;
+                }
             }
-            path.lineTo(right - topRightDiameter / 2f, top);
-
-            path.quadTo(right, top, right, top + topRightDiameter / 2);
-            //RIGHT, TOP
+        }
 
-            if (position == Position.LEFT) {
-                path.lineTo(right, arrowSourceY - arrowWidth);
-                path.lineTo(myRect.right, arrowTargetY);
-                path.lineTo(right, arrowSourceY + arrowWidth);
+        public void remove() {
+            //a detached view would never end its exit animation, a removed one must not start a second one
+            if (getParent() == null || removing) {
+                return;
             }
-            path.lineTo(right, bottom - bottomRightDiameter / 2);
-
-            path.quadTo(right, bottom, right - bottomRightDiameter / 2, bottom);
-            //RIGHT, BOTTOM
+            removing = true;
+            startExitAnimation(removeAnimatorListener);
+        }
 
-            if (position == Position.TOP) {
-                path.lineTo(arrowSourceX + arrowWidth, bottom);
-                path.lineTo(arrowTargetX, myRect.bottom);
-                path.lineTo(arrowSourceX - arrowWidth, bottom);
-            }
-            path.lineTo(left + bottomLeftDiameter / 2, bottom);
+        public void setDuration(long duration) {
+            this.duration = duration;
+        }
 
-            path.quadTo(left, bottom, left, bottom - bottomLeftDiameter / 2);
-            //LEFT, BOTTOM
+        public void setAutoHide(boolean autoHide) {
+            this.autoHide = autoHide;
+        }
 
-            if (position == Position.RIGHT) {
-                path.lineTo(left, arrowSourceY + arrowWidth);
-                path.lineTo(myRect.left, arrowTargetY);
-                path.lineTo(left, arrowSourceY - arrowWidth);
+        public void setupPosition(Rect rect) {
+            layoutEngine.place(rect.left, rect.top, rect.right, rect.bottom, getMeasuredWidth(), getMeasuredHeight());
+            if (containerHeight > 0) {
+                layoutEngine.clampVertically(containerHeight, getMeasuredHeight());
             }
-            path.lineTo(left, top + topLeftDiameter / 2);
+            setTranslationX(layoutEngine.getX());
+            setTranslationY(layoutEngine.getY());
+        }
 
-            path.quadTo(left, top, left + topLeftDiameter / 2, top);
+        private void drawBubble(Path path, RectF myRect) {
+            path.rewind();
 
-            path.close();
+            if (!hasViewRect)
+                return;
 
-            return path;
+            pathAdapter.path = path;
+            layoutEngine.buildBubble(pathAdapter, myRect.left, myRect.top, myRect.right, myRect.bottom, viewRect.centerX() - getX());
+            bubbleRect.set(layoutEngine.getBubbleLeft(), layoutEngine.getBubbleTop(), layoutEngine.getBubbleRight(), layoutEngine.getBubbleBottom());
         }
 
+        /**
+         * Pins the size measured in setup() and shifts TOP / BOTTOM tooltips back inside the screen
+         *
+         * @return true if the layout params changed
+         */
         public boolean adjustSize(Rect rect, int screenWidth) {
-
-            final Rect r = new Rect();
-            getGlobalVisibleRect(r);
+            TooltipMetrics.beginSection("ViewTooltip.adjustSize");
+            final int width = getMeasuredWidth();
+            final int height = getMeasuredHeight();
 
             boolean changed = false;
             final ViewGroup.LayoutParams layoutParams = getLayoutParams();
-            if (position == Position.LEFT && getWidth() > rect.left) {
-                layoutParams.width = rect.left - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
+            if (overlayHost == null && layoutParams != null && (layoutParams.width != width || layoutParams.height != height)) {
+                //otherwise the window layout would measure the tooltip again against the whole screen
+                layoutParams.width = width;
+                layoutParams.height = height;
+                setLayoutParams(layoutParams);
                 changed = true;
-            } else if (position == Position.RIGHT && rect.right + getWidth() > screenWidth) {
-                layoutParams.width = screenWidth - rect.right - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
-                changed = true;
-            } else if (position == Position.TOP || position == Position.BOTTOM) {
-                int adjustedLeft = rect.left;
-                int adjustedRight = rect.right;
+            }
 
-                if((rect.centerX() + getWidth() / 2f) > screenWidth){
-                    float diff = (rect.centerX() + getWidth() / 2f) - screenWidth;
+            clampAnchor(rect, screenWidth, width);
 
-                    adjustedLeft -=  diff;
-                    adjustedRight -=  diff;
+            TooltipMetrics.endSection();
+            return changed;
+        }
 
-                    setAlign(ALIGN.CENTER);
-                    changed = true;
-                }else if((rect.centerX() - getWidth() / 2f) < 0){
-                    float diff = -(rect.centerX() - getWidth() / 2f);
+        /**
+         * Shifts the anchor of TOP / BOTTOM tooltips so that a tooltip of this width stays inside the screen
+         */
+        private void clampAnchor(Rect rect, int screenWidth, int width) {
+            final int align = layoutEngine.getAlign();
+            layoutEngine.clampAnchor(rect.left, rect.right, screenWidth, width);
+            rect.left = layoutEngine.getAnchorLeft();
+            rect.right = layoutEngine.getAnchorRight();
+            if (align != layoutEngine.getAlign()) {
+                postInvalidate();
+            }
+        }
 
-                    adjustedLeft +=  diff;
-                    adjustedRight +=  diff;
+        /**
+         * Measures the tooltip against the space left beside rect and pins that size in its layout params
+         */
+        private void measureAndPin(Rect rect, int screenWidth) {
+            measureAgainst(rect, screenWidth);
+            adjustSize(rect, screenWidth);
+            measuredScreenWidth = screenWidth;
+            measuredContainerHeight = containerHeight;
+            //including the request made by adjustSize() itself
+            contentChanged = false;
+        }
 
-                    setAlign(ALIGN.CENTER);
-                    changed = true;
-                }
+        /**
+         * Measures the tooltip against the space left beside viewRect on every edge, then places it.
+         * Called before the tooltip is attached, its layout params get the final size :
+         * the measure pass of the parent is an EXACTLY pass at that size, which can't wrap the text differently
+         *
+         * @param screenHeight 0 to let the tooltip be as high as its content
+         */
+        void place(final Rect viewRect, int screenWidth, int screenHeight) {
+            TooltipMetrics.beginSection("ViewTooltip.setup");
+            this.viewRect.set(viewRect);
+            this.hasViewRect = true;
+            this.containerHeight = screenHeight;
+            final Rect myRect = adjustedRect;
+            myRect.set(viewRect);
+
+            measureAndPin(myRect, screenWidth);
+            setupPosition(myRect);
+            rebuildBubble(getMeasuredWidth(), getMeasuredHeight());
+            TooltipMetrics.endSection();
+        }
 
-                if(adjustedLeft < 0){
-                    adjustedLeft = 0;
-                }
+        /**
+         * Called once the placed tooltip is attached
+         */
+        void onAttached() {
+            removing = false;
+            layoutInOverlay();
+            startEnterAnimation();
 
-                if(adjustedRight > screenWidth){
-                    adjustedRight = screenWidth;
+            handleAutoRemove();
+        }
+
+        /**
+         * Measures the tooltip against the space left beside viewRect and places it,
+         * the next layout pass only confirms that size
+         */
+        public void setup(final Rect viewRect, int screenWidth) {
+            place(viewRect, screenWidth, containerHeight);
+            onAttached();
+        }
+
+        /**
+         * Follows an anchor which moved: only the translation changes, the size pinned by {@link #place(Rect, int, int)}
+         * is kept unless the content or the container changed. The bubble is rebuilt if its size or its arrow offset changed
+         */
+        void updateAnchor(Rect viewRect, int screenWidth) {
+            this.viewRect.set(viewRect);
+            final Rect myRect = adjustedRect;
+            myRect.set(viewRect);
+
+            if (contentChanged || screenWidth != measuredScreenWidth || containerHeight != measuredContainerHeight) {
+                measureAndPin(myRect, screenWidth);
+                layoutInOverlay();
+            } else {
+                clampAnchor(myRect, screenWidth, getMeasuredWidth());
+            }
+            setupPosition(myRect);
+
+            //a new size goes through onSizeChanged after the layout pass
+            if (getMeasuredWidth() == bubbleWidth && getMeasuredHeight() == bubbleHeight) {
+                final boolean arrowMoved = layoutEngine.isVertical()
+                        ? viewRect.centerX() - getX() != layoutEngine.getAnchorCenterX()
+                        : layoutEngine.getShiftY() != layoutEngine.getBubbleShiftY();
+                if (arrowMoved) {
+                    rebuildBubble(bubbleWidth, bubbleHeight);
+                    invalidate();
                 }
+            }
+        }
+
+        boolean isAutoHidePending() {
+            return autoHidePending;
+        }
 
-                rect.left = adjustedLeft;
-                rect.right = adjustedRight;
+        /**
+         * Moves the tooltip to the side chosen by the solver among these candidates
+         */
+        void solvePlacement(PlacementSolver solver, int[] candidates, int screenWidth) {
+            final int arrowHeight = layoutEngine.getArrowHeight();
+            final boolean vertical = layoutEngine.isVertical();
+            final int chosen = solver.solve(layoutEngine, viewRect.left, viewRect.top, viewRect.right, viewRect.bottom,
+                    getMeasuredWidth() - (vertical ? 0 : arrowHeight),
+                    getMeasuredHeight() - (vertical ? arrowHeight : 0),
+                    candidates);
+            if (chosen != layoutEngine.getPosition()) {
+                setPosition(Position.values()[chosen]);
+                updateAnchor(viewRect, screenWidth);
+                //TOP and BOTTOM share the same size, the arrow still has to move
+                rebuildBubble(getMeasuredWidth(), getMeasuredHeight());
+                invalidate();
             }
+        }
 
-            setLayoutParams(layoutParams);
-            postInvalidate();
-            return changed;
+        /**
+         * Nothing lays out the views of an overlay, the tooltip keeps its position through its translation
+         */
+        private void layoutInOverlay() {
+            if (overlayHost != null) {
+                layout(0, 0, getMeasuredWidth(), getMeasuredHeight());
+            }
         }
 
-        private void onSetup(Rect myRect) {
-            setupPosition(myRect);
+        private void measureAgainst(Rect rect, int screenWidth) {
+            final int availableWidth = layoutEngine.getAvailableWidth(rect.left, rect.right, screenWidth);
+            if (preparedText != null) {
+                applyPreparedWidth(availableWidth);
+            }
+            final int heightMeasureSpec = containerHeight > 0
+                    ? MeasureSpec.makeMeasureSpec(layoutEngine.getAvailableHeight(rect.top, rect.bottom, containerHeight), MeasureSpec.AT_MOST)
+                    : MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+            //View.measure() returns early while the constraints and the content are the same
+            measure(MeasureSpec.makeMeasureSpec(availableWidth, MeasureSpec.AT_MOST), heightMeasureSpec);
+        }
 
-            bubblePath = drawBubble(new RectF(shadowPadding, shadowPadding, getWidth() - shadowPadding * 2f, getHeight() - shadowPadding * 2f), corner, corner, corner, corner);
-            startEnterAnimation();
+        void prepareText(final PreparedTooltip preparedTooltip) {
+            final CharSequence text = textView.getText();
+            if (childView != textView || text == null || text.length() == 0) {
+                preparedTooltip.setReady();
+                return;
+            }
+            TextMeasurer.measure(text, TextViewCompat.getTextMetricsParams(textView), preparedTooltip);
+        }
 
-            handleAutoRemove();
+        /**
+         * Ignored when the text or its style changed since {@link ViewTooltip#prepare()}
+         */
+        void setPreparedText(TextMeasurer.Measurement measurement) {
+            if (childView != textView
+                    || !TextUtils.equals(measurement.source, textView.getText())
+                    || !measurement.text.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+                return;
+            }
+            TextViewCompat.setPrecomputedText(textView, measurement.text);
+            preparedText = measurement;
         }
 
-        public void setup(final Rect viewRect, int screenWidth) {
-            this.viewRect = new Rect(viewRect);
-            final Rect myRect = new Rect(viewRect);
+        /**
+         * The TextView gets the width it would have computed itself, it only has to break the lines
+         */
+        private void applyPreparedWidth(int availableWidth) {
+            final int textPadding = textView.getPaddingLeft() + textView.getPaddingRight();
+            final int maxTextWidth = availableWidth - getPaddingLeft() - getPaddingRight() - textPadding;
+            final int width = Math.max(0, Math.min(preparedText.desiredWidth, maxTextWidth)) + textPadding;
+            final ViewGroup.LayoutParams layoutParams = textView.getLayoutParams();
+            if (layoutParams.width != width) {
+                layoutParams.width = width;
+                textView.setLayoutParams(layoutParams);
+            }
+        }
 
-            final boolean changed = adjustSize(myRect, screenWidth);
-            if (!changed) {
-                onSetup(myRect);
-            } else {
-                getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-                    @Override
-                    public boolean onPreDraw() {
-                        onSetup(myRect);
-                        getViewTreeObserver().removeOnPreDrawListener(this);
-                        return false;
-                    }
-                });
+        private void clearPreparedText() {
+            if (preparedText == null) {
+                return;
             }
+            preparedText = null;
+            final ViewGroup.LayoutParams layoutParams = textView.getLayoutParams();
+            layoutParams.width = ViewGroup.LayoutParams.WRAP_CONTENT;
+            textView.setLayoutParams(layoutParams);
         }
 
         public void close() {
             remove();
         }
 
+        /**
+         * Removes the view without animation. An enter animation in progress is dropped without onDisplay,
+         * an exit animation in progress ends here with onHide
+         */
         public void removeNow() {
+            //nothing scheduled by this tooltip may run once it is removed
+            removeCallbacks(autoHideRunnable);
+            autoHidePending = false;
+            //an exit animation ending here removes the view itself
+            cancelTransition(transition != null && !transition.enter);
+
             if (getParent() != null) {
-                final ViewGroup parent = ((ViewGroup) getParent());
-                parent.removeView(TooltipView.this);
+                if (overlayHost != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+                    overlayHost.getOverlay().remove(TooltipView.this);
+                    overlayHost = null;
+                } else {
+                    ((ViewGroup) getParent()).removeView(TooltipView.this);
+                }
+                TooltipMetrics.updateLiveCount(metrics, -1);
+                final TooltipManager manager = this.manager;
+                this.manager = null;
+                if (manager != null) {
+                    manager.onRemoved(this);
+                }
+                final ViewTooltip owner = this.owner;
+                this.owner = null;
+                if (owner != null) {
+                    owner.unbind();
+                }
+                if (pool != null) {
+                    if (owner != null) {
+                        owner.onTooltipViewReleased(this);
+                    }
+                    pool.release(this);
+                }
             }
         }
 
@@ -875,20 +2189,56 @@ public class ViewTooltip {
         }
 
         public void setWithShadow(boolean withShadow) {
-            if(withShadow){
-                bubblePaint.setShadowLayer(shadowWidth, 0, 0, shadowColor);
-            } else {
-                bubblePaint.setShadowLayer(0, 0, 0, Color.TRANSPARENT);
-            }
+            this.withShadow = withShadow;
+            applyShadow();
         }
 
         public void setDistanceWithView(int distanceWithView) {
-            this.distanceWithView = distanceWithView;
+            layoutEngine.setDistanceWithView(distanceWithView);
+        }
+
+        public void setBorder(int color, float width) {
+            this.borderColor = color;
+            this.borderWidth = width;
+            this.customBorderPaint = null;
+            invalidatePaints();
         }
 
         public void setBorderPaint(Paint borderPaint) {
-            this.borderPaint = borderPaint;
-            postInvalidate();
+            this.customBorderPaint = borderPaint;
+            invalidatePaints();
+        }
+
+        private static class PathAdapter implements PathSink {
+            private Path path;
+
+            @Override
+            public void moveTo(float x, float y) {
+                path.moveTo(x, y);
+            }
+
+            @Override
+            public void lineTo(float x, float y) {
+                path.lineTo(x, y);
+            }
+
+            @Override
+            public void quadTo(float x1, float y1, float x2, float y2) {
+                path.quadTo(x1, y1, x2, y2);
+            }
+
+            @Override
+            public void close() {
+                path.close();
+            }
+        }
+
+        @RequiresApi(Build.VERSION_CODES.LOLLIPOP)
+        private static class BubbleOutlineProvider extends ViewOutlineProvider {
+            @Override
+            public void getOutline(View view, Outline outline) {
+                ((TooltipView) view).getBubbleOutline(outline);
+            }
         }
     }
 
@@ -926,6 +2276,18 @@ public class ViewTooltip {
         }
 
 
+        /**
+         * @return null when the activity does not publish its lifecycle
+         */
+        public Lifecycle getLifecycle() {
+            if (fragment != null) {
+                return fragment.getLifecycle();
+            } else if (activity instanceof LifecycleOwner) {
+                return ((LifecycleOwner) activity).getLifecycle();
+            }
+            return null;
+        }
+
         public Window getWindow() {
             if (activity != null) {
                 return activity.getWindow();
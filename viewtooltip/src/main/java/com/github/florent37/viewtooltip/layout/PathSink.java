@@ -0,0 +1,16 @@
+package com.github.florent37.viewtooltip.layout;
+
+/**
+ * Receives the outline built by {@link TooltipLayoutEngine#buildBubble(PathSink, float, float, float, float, float)},
+ * implemented on top of android.graphics.Path by the TooltipView
+ */
+public interface PathSink {
+
+    void moveTo(float x, float y);
+
+    void lineTo(float x, float y);
+
+    void quadTo(float x1, float y1, float x2, float y2);
+
+    void close();
+}
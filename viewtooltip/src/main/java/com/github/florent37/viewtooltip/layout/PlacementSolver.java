@@ -0,0 +1,110 @@
+package com.github.florent37.viewtooltip.layout;
+
+/**
+ * Picks a position for each tooltip among its candidates so that it stays inside the container
+ * and does not cover the tooltips placed before it.
+ * <p>
+ * Call {@link #reset(int, int)}, add the fixed tooltips with {@link #addObstacle(int, int, int, int)},
+ * then {@link #solve(TooltipLayoutEngine, int, int, int, int, int, int, int[])} each automatic tooltip in turn.
+ * The first candidate without overflow nor overlap wins, otherwise the one covering the least area.
+ */
+public class PlacementSolver {
+
+    private final SpatialGrid grid;
+    private final TooltipLayoutEngine candidate = new TooltipLayoutEngine();
+    private int containerWidth;
+    private int containerHeight;
+
+    private int x;
+    private int y;
+    private int width;
+    private int height;
+
+    public PlacementSolver() {
+        this(SpatialGrid.DEFAULT_CELL_SIZE);
+    }
+
+    public PlacementSolver(int cellSize) {
+        this.grid = new SpatialGrid(cellSize);
+    }
+
+    public void reset(int containerWidth, int containerHeight) {
+        this.containerWidth = containerWidth;
+        this.containerHeight = containerHeight;
+        grid.reset(containerWidth, containerHeight);
+    }
+
+    public void addObstacle(int left, int top, int right, int bottom) {
+        grid.insert(left, top, right, bottom);
+    }
+
+    /**
+     * @param style         engine of the tooltip, for its alignment, distance and arrow
+     * @param contentWidth  width of the tooltip without its arrow
+     * @param contentHeight height of the tooltip without its arrow
+     * @param candidates    positions by preference, {@link TooltipLayoutEngine#LEFT}...
+     * @return the chosen position, its bounds are then available from {@link #getX()}, {@link #getY()}...
+     */
+    public int solve(TooltipLayoutEngine style, int anchorLeft, int anchorTop, int anchorRight, int anchorBottom,
+                     int contentWidth, int contentHeight, int[] candidates) {
+        candidate.setDistanceWithView(style.getDistanceWithView());
+
+        int bestPosition = candidates[0];
+        long bestPenalty = Long.MAX_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            final int position = candidates[i];
+            candidate.setPosition(position);
+            candidate.setAlign(style.getAlign());
+
+            final boolean vertical = candidate.isVertical();
+            final int candidateWidth = contentWidth + (vertical ? 0 : style.getArrowHeight());
+            final int candidateHeight = contentHeight + (vertical ? style.getArrowHeight() : 0);
+            candidate.layout(anchorLeft, anchorTop, anchorRight, anchorBottom, containerWidth, candidateWidth, candidateHeight);
+
+            final int left = candidate.getX();
+            final int top = candidate.getY();
+            final long penalty = overflowArea(left, top, left + candidateWidth, top + candidateHeight)
+                    + grid.overlapArea(left, top, left + candidateWidth, top + candidateHeight);
+            if (penalty < bestPenalty) {
+                bestPenalty = penalty;
+                bestPosition = position;
+                x = left;
+                y = top;
+                width = candidateWidth;
+                height = candidateHeight;
+                if (penalty == 0) {
+                    break;
+                }
+            }
+        }
+
+        grid.insert(x, y, x + width, y + height);
+        return bestPosition;
+    }
+
+    private long overflowArea(int left, int top, int right, int bottom) {
+        final long area = (long) (right - left) * (bottom - top);
+        final int insideWidth = Math.min(right, containerWidth) - Math.max(left, 0);
+        final int insideHeight = Math.min(bottom, containerHeight) - Math.max(top, 0);
+        if (insideWidth <= 0 || insideHeight <= 0) {
+            return area;
+        }
+        return area - (long) insideWidth * insideHeight;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
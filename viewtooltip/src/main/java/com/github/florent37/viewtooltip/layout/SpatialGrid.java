@@ -0,0 +1,134 @@
+package com.github.florent37.viewtooltip.layout;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the container : a rect is stored in every cell it covers,
+ * so a query only checks the rects sharing a cell with it instead of all of them.
+ * <p>
+ * The arrays grow once and are reused by {@link #reset(int, int)}, nothing is allocated per frame.
+ */
+public class SpatialGrid {
+
+    public static final int DEFAULT_CELL_SIZE = 256;
+
+    private final int cellSize;
+    private int columns;
+    private int rows;
+    private int[][] cells = new int[0][];
+    private int[] cellCounts = new int[0];
+
+    private int[] rects = new int[4 * 16];
+    private int count;
+
+    private int[] stamps = new int[16];
+    private int stamp;
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public SpatialGrid(int cellSize) {
+        this.cellSize = Math.max(1, cellSize);
+    }
+
+    /**
+     * Forgets every rect, the grid now covers a container of this size
+     */
+    public void reset(int width, int height) {
+        columns = Math.max(1, (width + cellSize - 1) / cellSize);
+        rows = Math.max(1, (height + cellSize - 1) / cellSize);
+        final int cellCount = columns * rows;
+        if (cells.length < cellCount) {
+            cells = Arrays.copyOf(cells, cellCount);
+            cellCounts = new int[cellCount];
+        } else {
+            Arrays.fill(cellCounts, 0);
+        }
+        count = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void insert(int left, int top, int right, int bottom) {
+        if (rects.length < (count + 1) * 4) {
+            rects = Arrays.copyOf(rects, rects.length * 2);
+            stamps = Arrays.copyOf(stamps, stamps.length * 2);
+        }
+        final int id = count++;
+        rects[id * 4] = left;
+        rects[id * 4 + 1] = top;
+        rects[id * 4 + 2] = right;
+        rects[id * 4 + 3] = bottom;
+        stamps[id] = 0;
+
+        final int firstColumn = column(left);
+        final int lastColumn = column(right - 1);
+        final int firstRow = row(top);
+        final int lastRow = row(bottom - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                add(row * columns + column, id);
+            }
+        }
+    }
+
+    /**
+     * @return the area this rect shares with the inserted ones
+     */
+    public long overlapArea(int left, int top, int right, int bottom) {
+        if (count == 0 || right <= left || bottom <= top) {
+            return 0;
+        }
+        //each rect is counted once even when it shares several cells with the query
+        if (++stamp == Integer.MAX_VALUE) {
+            stamp = 1;
+            Arrays.fill(stamps, 0);
+        }
+        long area = 0;
+        final int firstColumn = column(left);
+        final int lastColumn = column(right - 1);
+        final int firstRow = row(top);
+        final int lastRow = row(bottom - 1);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                final int cell = row * columns + column;
+                final int[] ids = cells[cell];
+                for (int i = 0; i < cellCounts[cell]; i++) {
+                    final int id = ids[i];
+                    if (stamps[id] == stamp) {
+                        continue;
+                    }
+                    stamps[id] = stamp;
+                    final int width = Math.min(right, rects[id * 4 + 2]) - Math.max(left, rects[id * 4]);
+                    final int height = Math.min(bottom, rects[id * 4 + 3]) - Math.max(top, rects[id * 4 + 1]);
+                    if (width > 0 && height > 0) {
+                        area += (long) width * height;
+                    }
+                }
+            }
+        }
+        return area;
+    }
+
+    private void add(int cell, int id) {
+        int[] ids = cells[cell];
+        if (ids == null) {
+            ids = cells[cell] = new int[4];
+        } else if (ids.length == cellCounts[cell]) {
+            ids = cells[cell] = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[cellCounts[cell]++] = id;
+    }
+
+    //rects outside of the container go to the border cells
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, x / cellSize));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, y / cellSize));
+    }
+}
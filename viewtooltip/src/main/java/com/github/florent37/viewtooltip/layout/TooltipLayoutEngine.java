@@ -0,0 +1,443 @@
+package com.github.florent37.viewtooltip.layout;
+
+/**
+ * Tooltip geometry without any Android dependency : available width, clamping inside the container,
+ * placement next to the anchor and bubble outline.
+ * <p>
+ * Coordinates are in pixels, relative to the container the tooltip is added to.
+ * An engine keeps its style and the result of its last computation, it is not thread safe.
+ */
+public class TooltipLayoutEngine {
+
+    //same order as ViewTooltip.Position
+    public static final int LEFT = 0;
+    public static final int RIGHT = 1;
+    public static final int TOP = 2;
+    public static final int BOTTOM = 3;
+
+    //same order as ViewTooltip.ALIGN
+    public static final int ALIGN_START = 0;
+    public static final int ALIGN_CENTER = 1;
+    public static final int ALIGN_END = 2;
+
+    public static final int MARGIN_SCREEN_BORDER_TOOLTIP = 30;
+
+    private int position = BOTTOM;
+    private int align = ALIGN_CENTER;
+    private int distanceWithView;
+    private int arrowWidth = 15;
+    private int arrowHeight = 15;
+    private int arrowSourceMargin;
+    private int arrowTargetMargin;
+    private int corner = 30;
+    private int marginLeft;
+    private int marginTop;
+    private int marginRight;
+    private int marginBottom;
+
+    private int anchorLeft;
+    private int anchorRight;
+    private int x;
+    private int y;
+    private int shiftY;
+
+    private float bubbleLeft;
+    private float bubbleTop;
+    private float bubbleRight;
+    private float bubbleBottom;
+    private float anchorCenterX;
+    private int bubbleShiftY;
+    private final float[] arrow = new float[6];
+
+    /**
+     * Puts the style back to its defaults and forgets the last computation, so that an engine can be reused
+     */
+    public void reset() {
+        position = BOTTOM;
+        align = ALIGN_CENTER;
+        distanceWithView = 0;
+        arrowWidth = 15;
+        arrowHeight = 15;
+        arrowSourceMargin = 0;
+        arrowTargetMargin = 0;
+        corner = 30;
+        setMargin(0, 0, 0, 0);
+
+        anchorLeft = 0;
+        anchorRight = 0;
+        x = 0;
+        y = 0;
+        shiftY = 0;
+
+        bubbleLeft = 0;
+        bubbleTop = 0;
+        bubbleRight = 0;
+        bubbleBottom = 0;
+        anchorCenterX = 0;
+        bubbleShiftY = 0;
+        for (int i = 0; i < arrow.length; i++) {
+            arrow[i] = 0;
+        }
+    }
+
+    public void setPosition(int position) {
+        this.position = position;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public boolean isVertical() {
+        return position == TOP || position == BOTTOM;
+    }
+
+    public void setAlign(int align) {
+        this.align = align;
+    }
+
+    public int getAlign() {
+        return align;
+    }
+
+    public void setDistanceWithView(int distanceWithView) {
+        this.distanceWithView = distanceWithView;
+    }
+
+    public int getDistanceWithView() {
+        return distanceWithView;
+    }
+
+    public void setArrowWidth(int arrowWidth) {
+        this.arrowWidth = arrowWidth;
+    }
+
+    public int getArrowWidth() {
+        return arrowWidth;
+    }
+
+    public void setArrowHeight(int arrowHeight) {
+        this.arrowHeight = arrowHeight;
+    }
+
+    public int getArrowHeight() {
+        return arrowHeight;
+    }
+
+    public void setArrowSourceMargin(int arrowSourceMargin) {
+        this.arrowSourceMargin = arrowSourceMargin;
+    }
+
+    public int getArrowSourceMargin() {
+        return arrowSourceMargin;
+    }
+
+    public void setArrowTargetMargin(int arrowTargetMargin) {
+        this.arrowTargetMargin = arrowTargetMargin;
+    }
+
+    public int getArrowTargetMargin() {
+        return arrowTargetMargin;
+    }
+
+    public void setCorner(int corner) {
+        this.corner = corner;
+    }
+
+    public int getCorner() {
+        return corner;
+    }
+
+    public void setMargin(int left, int top, int right, int bottom) {
+        this.marginLeft = left;
+        this.marginTop = top;
+        this.marginRight = right;
+        this.marginBottom = bottom;
+    }
+
+    /**
+     * @return the widest the tooltip can be beside this anchor
+     */
+    public int getAvailableWidth(int anchorLeft, int anchorRight, int containerWidth) {
+        final int availableWidth;
+        if (position == LEFT) {
+            availableWidth = anchorLeft - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
+        } else if (position == RIGHT) {
+            availableWidth = containerWidth - anchorRight - MARGIN_SCREEN_BORDER_TOOLTIP - distanceWithView;
+        } else {
+            availableWidth = containerWidth;
+        }
+        return Math.max(availableWidth, 0);
+    }
+
+    /**
+     * @return the highest the tooltip can be beside this anchor
+     */
+    public int getAvailableHeight(int anchorTop, int anchorBottom, int containerHeight) {
+        final int availableHeight;
+        if (position == TOP) {
+            availableHeight = anchorTop - distanceWithView;
+        } else if (position == BOTTOM) {
+            availableHeight = containerHeight - anchorBottom - distanceWithView;
+        } else {
+            availableHeight = containerHeight;
+        }
+        return Math.max(availableHeight, 0);
+    }
+
+    /**
+     * Shifts the anchor of a TOP / BOTTOM tooltip so that the tooltip stays inside the container,
+     * the tooltip is centered on it from then on.
+     * The shifted anchor is available from {@link #getAnchorLeft()} and {@link #getAnchorRight()}
+     */
+    public void clampAnchor(int anchorLeft, int anchorRight, int containerWidth, int width) {
+        int adjustedLeft = anchorLeft;
+        int adjustedRight = anchorRight;
+
+        if (isVertical()) {
+            final int centerX = (anchorLeft + anchorRight) >> 1;
+            if ((centerX + width / 2f) > containerWidth) {
+                float diff = (centerX + width / 2f) - containerWidth;
+
+                adjustedLeft -= diff;
+                adjustedRight -= diff;
+
+                align = ALIGN_CENTER;
+            } else if ((centerX - width / 2f) < 0) {
+                float diff = -(centerX - width / 2f);
+
+                adjustedLeft += diff;
+                adjustedRight += diff;
+
+                align = ALIGN_CENTER;
+            }
+
+            if (adjustedLeft < 0) {
+                adjustedLeft = 0;
+            }
+
+            if (adjustedRight > containerWidth) {
+                adjustedRight = containerWidth;
+            }
+        }
+
+        this.anchorLeft = adjustedLeft;
+        this.anchorRight = adjustedRight;
+    }
+
+    public int getAnchorLeft() {
+        return anchorLeft;
+    }
+
+    public int getAnchorRight() {
+        return anchorRight;
+    }
+
+    /**
+     * Computes the top left corner of a tooltip of this size next to the anchor,
+     * available from {@link #getX()} and {@link #getY()}
+     */
+    public void place(int anchorLeft, int anchorTop, int anchorRight, int anchorBottom, int width, int height) {
+        shiftY = 0;
+        if (position == LEFT || position == RIGHT) {
+            if (position == LEFT) {
+                x = anchorLeft - width - distanceWithView;
+            } else {
+                x = anchorRight + distanceWithView;
+            }
+            y = anchorTop + getAlignOffset(height, anchorBottom - anchorTop);
+        } else {
+            if (position == BOTTOM) {
+                y = anchorBottom + distanceWithView;
+            } else { // top
+                y = anchorTop - height - distanceWithView;
+            }
+            x = anchorLeft + getAlignOffset(width, anchorRight - anchorLeft);
+        }
+    }
+
+    /**
+     * {@link #clampAnchor(int, int, int, int)} then {@link #place(int, int, int, int, int, int)} on the shifted anchor
+     */
+    public void layout(int anchorLeft, int anchorTop, int anchorRight, int anchorBottom, int containerWidth, int width, int height) {
+        clampAnchor(anchorLeft, anchorRight, containerWidth, width);
+        place(this.anchorLeft, anchorTop, this.anchorRight, anchorBottom, width, height);
+    }
+
+    /**
+     * Moves the last placed LEFT / RIGHT tooltip back inside the container height,
+     * the arrow of the next bubble keeps pointing at the anchor
+     */
+    public void clampVertically(int containerHeight, int height) {
+        if (isVertical()) {
+            return;
+        }
+        int clampedY = Math.min(y, containerHeight - height);
+        clampedY = Math.max(clampedY, 0);
+        shiftY += clampedY - y;
+        y = clampedY;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return how far {@link #clampVertically(int, int)} moved the last placed tooltip
+     */
+    public int getShiftY() {
+        return shiftY;
+    }
+
+    private int getAlignOffset(int myLength, int hisLength) {
+        switch (align) {
+            case ALIGN_END:
+                return hisLength - myLength;
+            case ALIGN_CENTER:
+                return (hisLength - myLength) / 2;
+        }
+        return 0;
+    }
+
+    /**
+     * Emits the bubble outline inside these bounds, arrow included
+     *
+     * @param anchorCenterX horizontal center of the anchor, relative to the tooltip
+     */
+    public void buildBubble(PathSink path, float boundsLeft, float boundsTop, float boundsRight, float boundsBottom, float anchorCenterX) {
+        final float diameter = corner < 0 ? 0 : corner;
+
+        final float spacingLeft = position == RIGHT ? arrowHeight : marginLeft;
+        final float spacingTop = position == BOTTOM ? arrowHeight : marginTop;
+        final float spacingRight = position == LEFT ? arrowHeight : marginRight;
+        final float spacingBottom = position == TOP ? arrowHeight : marginBottom;
+
+        final float left = spacingLeft + boundsLeft;
+        final float top = spacingTop + boundsTop;
+        final float right = boundsRight - spacingRight;
+        final float bottom = boundsBottom - spacingBottom;
+
+        bubbleLeft = left;
+        bubbleTop = top;
+        bubbleRight = right;
+        bubbleBottom = bottom;
+        this.anchorCenterX = anchorCenterX;
+        this.bubbleShiftY = shiftY;
+
+        final boolean vertical = isVertical();
+
+        final float arrowSourceX = vertical
+                ? anchorCenterX + arrowSourceMargin
+                : anchorCenterX;
+        final float arrowTargetX = vertical
+                ? anchorCenterX + arrowTargetMargin
+                : anchorCenterX;
+        //a tooltip moved down by clampVertically() points higher
+        final float centerY = vertical || shiftY == 0
+                ? bottom / 2f
+                : Math.max(top + diameter / 2f + arrowWidth, Math.min(bottom / 2f - shiftY, bottom - diameter / 2f - arrowWidth));
+        final float arrowSourceY = !vertical
+                ? centerY - arrowSourceMargin
+                : centerY;
+        final float arrowTargetY = !vertical
+                ? centerY - arrowTargetMargin
+                : centerY;
+
+        path.moveTo(left + diameter / 2f, top);
+        //LEFT, TOP
+
+        if (position == BOTTOM) {
+            setArrow(arrowSourceX - arrowWidth, top, arrowTargetX, boundsTop, arrowSourceX + arrowWidth, top);
+            lineToArrow(path);
+        }
+        path.lineTo(right - diameter / 2f, top);
+
+        path.quadTo(right, top, right, top + diameter / 2);
+        //RIGHT, TOP
+
+        if (position == LEFT) {
+            setArrow(right, arrowSourceY - arrowWidth, boundsRight, arrowTargetY, right, arrowSourceY + arrowWidth);
+            lineToArrow(path);
+        }
+        path.lineTo(right, bottom - diameter / 2);
+
+        path.quadTo(right, bottom, right - diameter / 2, bottom);
+        //RIGHT, BOTTOM
+
+        if (position == TOP) {
+            setArrow(arrowSourceX + arrowWidth, bottom, arrowTargetX, boundsBottom, arrowSourceX - arrowWidth, bottom);
+            lineToArrow(path);
+        }
+        path.lineTo(left + diameter / 2, bottom);
+
+        path.quadTo(left, bottom, left, bottom - diameter / 2);
+        //LEFT, BOTTOM
+
+        if (position == RIGHT) {
+            setArrow(left, arrowSourceY + arrowWidth, boundsLeft, arrowTargetY, left, arrowSourceY - arrowWidth);
+            lineToArrow(path);
+        }
+        path.lineTo(left, top + diameter / 2);
+
+        path.quadTo(left, top, left + diameter / 2, top);
+
+        path.close();
+    }
+
+    private void setArrow(float startX, float startY, float tipX, float tipY, float endX, float endY) {
+        arrow[0] = startX;
+        arrow[1] = startY;
+        arrow[2] = tipX;
+        arrow[3] = tipY;
+        arrow[4] = endX;
+        arrow[5] = endY;
+    }
+
+    private void lineToArrow(PathSink path) {
+        path.lineTo(arrow[0], arrow[1]);
+        path.lineTo(arrow[2], arrow[3]);
+        path.lineTo(arrow[4], arrow[5]);
+    }
+
+    public float getBubbleLeft() {
+        return bubbleLeft;
+    }
+
+    public float getBubbleTop() {
+        return bubbleTop;
+    }
+
+    public float getBubbleRight() {
+        return bubbleRight;
+    }
+
+    public float getBubbleBottom() {
+        return bubbleBottom;
+    }
+
+    /**
+     * @return the anchor center used by the last {@link #buildBubble(PathSink, float, float, float, float, float)}
+     */
+    public float getAnchorCenterX() {
+        return anchorCenterX;
+    }
+
+    /**
+     * @return the vertical shift used by the last {@link #buildBubble(PathSink, float, float, float, float, float)},
+     * the arrow of a LEFT / RIGHT bubble has to move when it differs from {@link #getShiftY()}
+     */
+    public int getBubbleShiftY() {
+        return bubbleShiftY;
+    }
+
+    /**
+     * @param index 0 to 5 : x, y of the arrow start, of its tip, then of its end, from the last built bubble
+     */
+    public float getArrowVertex(int index) {
+        return arrow[index];
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.florent37.viewtooltip;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the bytes allocated by the current thread, as reported by the JVM
+ */
+public final class AllocationCounter {
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private final long threadId;
+    private final long readCost;
+
+    public AllocationCounter() {
+        threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assertTrue("allocation measurement not supported by this JVM", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        threadId = Thread.currentThread().getId();
+
+        //the reading taken before a run is counted in its result, whatever the JVM allocates to read the counter is removed
+        allocatedBytes();
+        final long first = allocatedBytes();
+        readCost = allocatedBytes() - first;
+    }
+
+    /**
+     * Bytes allocated while running the given code, warm it up first so class loading and the JIT are not counted
+     */
+    public long measure(Runnable runnable) {
+        final long before = allocatedBytes();
+        runnable.run();
+        return allocatedBytes() - before - readCost;
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(threadId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.florent37.viewtooltip;
+
+import android.text.Spannable;
+import android.text.Spanned;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class HtmlCacheTest {
+
+    private final HtmlCache cache = HtmlCache.getInstance();
+
+    @After
+    public void tearDown() {
+        cache.clear();
+    }
+
+    @Test
+    public void sameHtmlIsParsedOnce() {
+        final Spanned first = cache.fromHtml(RuntimeEnvironment.application, "<b>parsed once</b>");
+
+        assertSame(first, cache.fromHtml(RuntimeEnvironment.application, "<b>parsed once</b>"));
+        assertEquals("parsed once", first.toString());
+    }
+
+    @Test
+    public void cachedTextCannotBeModified() {
+        final Spanned spanned = cache.fromHtml(RuntimeEnvironment.application, "<b>shared</b>");
+
+        assertFalse(spanned instanceof Spannable);
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.Color;
+import android.os.Looper;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class LazyTooltipTest {
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+    private ViewGroup decorView;
+    private View anchor;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+        final FrameLayout content = new FrameLayout(activity);
+        activity.setContentView(content);
+        decorView = (ViewGroup) activity.getWindow().getDecorView();
+        anchor = new View(activity);
+        content.addView(anchor, new FrameLayout.LayoutParams(100, 50, Gravity.CENTER));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void builderCreatesNoView() {
+        final ViewTooltip tooltip = configured();
+
+        assertNull(tooltip.getTooltipView());
+    }
+
+    @Test
+    public void showAppliesTheRecordedConfiguration() {
+        final ViewTooltip.TooltipView tooltipView = configured().show();
+
+        assertNotNull(tooltipView);
+        assertSame(decorView, tooltipView.getParent());
+        assertEquals(ViewTooltip.Position.TOP, tooltipView.getPosition());
+        assertEquals(20, tooltipView.getArrowWidth());
+        assertEquals("lazy", ((TextView) tooltipView.childView).getText().toString());
+        assertEquals(Color.RED, ((TextView) tooltipView.childView).getCurrentTextColor());
+    }
+
+    @Test
+    public void builderCallsAfterShowApplyToTheView() {
+        final ViewTooltip tooltip = configured();
+        final ViewTooltip.TooltipView tooltipView = tooltip.show();
+
+        tooltip.text("changed")
+                .textColor(Color.BLUE)
+                .arrowWidth(30);
+
+        assertEquals("changed", ((TextView) tooltipView.childView).getText().toString());
+        assertEquals(Color.BLUE, ((TextView) tooltipView.childView).getCurrentTextColor());
+        assertEquals(30, tooltipView.getArrowWidth());
+        //the style set before show() is kept
+        assertEquals(ViewTooltip.Position.TOP, tooltipView.getPosition());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void marginAfterShowFails() {
+        final ViewTooltip tooltip = configured();
+        tooltip.show();
+
+        tooltip.margin(1, 2, 3, 4);
+    }
+
+    @Test
+    public void closeBeforeShowCreatesNoView() {
+        final int children = decorView.getChildCount();
+        final ViewTooltip tooltip = configured();
+
+        tooltip.close();
+        tooltip.closeNow();
+
+        assertNull(tooltip.getTooltipView());
+        assertEquals(children, decorView.getChildCount());
+    }
+
+    private ViewTooltip configured() {
+        return ViewTooltip.on(activity, anchor)
+                .text("lazy")
+                .textColor(Color.RED)
+                .position(ViewTooltip.Position.TOP)
+                .arrowWidth(20)
+                .autoHide(false, 0);
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.florent37.viewtooltip;
+
+import android.animation.Animator;
+import android.os.Looper;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * The measurement cache is static, each test measures its own texts
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class PreparedTooltipTest {
+
+    private static final long MEASURE_TIMEOUT_MS = 5000;
+
+    private static final ViewTooltip.TooltipAnimation NO_ANIMATION = new ViewTooltip.TooltipAnimation() {
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+    };
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+    private View anchor;
+    private ShadowLooper looper;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+        final FrameLayout content = new FrameLayout(activity);
+        activity.setContentView(content);
+        anchor = new View(activity);
+        content.addView(anchor, new FrameLayout.LayoutParams(100, 50, Gravity.CENTER));
+        looper = shadowOf(Looper.getMainLooper());
+        looper.idle();
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void showUsesThePreparedWidth() {
+        final PreparedTooltip prepared = tooltip("prepared width").prepare();
+        awaitReady(prepared);
+
+        final ViewTooltip.TooltipView tooltipView = prepared.show();
+
+        //the TextView gets an exact width instead of measuring the text again
+        assertNotEquals(ViewGroup.LayoutParams.WRAP_CONTENT, tooltipView.childView.getLayoutParams().width);
+    }
+
+    @Test
+    public void sameTextIsReadyRightAway() {
+        awaitReady(tooltip("measured once").prepare());
+
+        assertTrue(tooltip("measured once").prepare().isReady());
+    }
+
+    @Test
+    public void styledTextParsedAgainIsMeasuredAgain() {
+        awaitReady(tooltip("<b>styled</b>").prepare());
+
+        //same characters, but other span instances which could style them differently
+        final ViewTooltip tooltip = tooltip("<b>styled</b>").text("<b>styled</b>", false);
+
+        assertFalse(tooltip.prepare().isReady());
+    }
+
+    @Test
+    public void otherTextSizeIsMeasuredAgain() {
+        awaitReady(tooltip("measured per size").prepare());
+
+        final ViewTooltip tooltip = tooltip("measured per size").textSize(TypedValue.COMPLEX_UNIT_PX, 99);
+
+        assertFalse(tooltip.prepare().isReady());
+    }
+
+    @Test
+    public void textChangedAfterPrepareIsMeasuredOnShow() {
+        final ViewTooltip tooltip = tooltip("changed text");
+        final PreparedTooltip prepared = tooltip.prepare();
+        awaitReady(prepared);
+        tooltip.text("another text");
+
+        final ViewTooltip.TooltipView tooltipView = prepared.show();
+
+        assertEquals(ViewGroup.LayoutParams.WRAP_CONTENT, tooltipView.childView.getLayoutParams().width);
+    }
+
+    @Test
+    public void cancelledTooltipIsNotShown() {
+        final PreparedTooltip prepared = tooltip("cancelled").prepare();
+        prepared.cancel();
+
+        final ViewTooltip.TooltipView tooltipView = prepared.show();
+        looper.idle();
+
+        assertNull(tooltipView.getParent());
+    }
+
+    @Test
+    public void showAfterCloseTakesAnotherView() {
+        TooltipPool.install(activity);
+        final ViewTooltip tooltip = tooltip("shown after close");
+        final PreparedTooltip prepared = tooltip.prepare();
+        awaitReady(prepared);
+        //the pooled view is released by the close
+        tooltip.closeNow();
+
+        final ViewTooltip.TooltipView tooltipView = prepared.show();
+        looper.idle();
+
+        assertNotNull(tooltipView.getParent());
+    }
+
+    private ViewTooltip tooltip(String text) {
+        return ViewTooltip.on(activity, anchor)
+                .text(text)
+                .animation(NO_ANIMATION)
+                .autoHide(false, 0);
+    }
+
+    /**
+     * The text is measured on a background thread, the result is delivered through the main looper
+     */
+    private void awaitReady(PreparedTooltip prepared) {
+        final long deadline = System.currentTimeMillis() + MEASURE_TIMEOUT_MS;
+        while (!prepared.isReady()) {
+            assertTrue("text still not measured after " + MEASURE_TIMEOUT_MS + "ms", System.currentTimeMillis() < deadline);
+            Thread.yield();
+            looper.idle();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.github.florent37.viewtooltip;
+
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TooltipBatchTest {
+
+    private final List<String> violations = new ArrayList<>();
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+        activity.setContentView(new FrameLayout(activity));
+        ViewTooltip.enableStrictMode(TooltipStrictMode.DEFAULT_MAX_ATTACHED, new TooltipStrictMode.ViolationListener() {
+            @Override
+            public void onViolation(String message, Throwable creationTrace) {
+                violations.add(message);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        ViewTooltip.disableStrictMode();
+        controller.destroy();
+    }
+
+    @Test
+    public void batchedTooltipsGoThroughTheStrictModeChecks() {
+        //never attached to the window
+        final View anchor = new View(activity);
+
+        ViewTooltip.batch()
+                .add(ViewTooltip.on(activity, anchor).text("batched"))
+                .showAll();
+
+        assertEquals(1, violations.size());
+    }
+}
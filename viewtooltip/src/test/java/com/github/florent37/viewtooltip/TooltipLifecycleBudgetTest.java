@@ -0,0 +1,363 @@
+package com.github.florent37.viewtooltip;
+
+import android.animation.Animator;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.LifecycleRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Cost of the tooltip lifecycle on a paused main looper, each test fails once its budget is exceeded
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class TooltipLifecycleBudgetTest {
+
+    //show() before the anchor is laid out : the traversal laying it out, then the one of the attached tooltip
+    private static final int MAX_LOOPER_TURNS_TO_DISPLAY = 8;
+    private static final int MAX_FRAMES_TO_DISPLAY = 2;
+    private static final int MAX_LAYOUT_PASSES_TO_DISPLAY = 2;
+    //the fade only changes the alpha, it must not lay the window out again
+    private static final int MAX_LAYOUT_PASSES_DURING_FADE = 1;
+    private static final long MAX_DISPLAY_DELAY_AFTER_FADE_MS = 50;
+    private static final long MAX_DRAW_ALLOCATED_BYTES = 0;
+
+    private static final long FADE_MS = 200;
+    private static final long AUTO_HIDE_MS = 1000;
+    private static final long FRAME_MS = 16;
+    private static final int MAX_STEPS = 10000;
+    private static final int DRAWS = 1000;
+
+    private static final ViewTooltip.TooltipAnimation NO_ANIMATION = new ViewTooltip.TooltipAnimation() {
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+    };
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+    private ViewGroup decorView;
+    private FrameLayout content;
+    private ShadowLooper looper;
+
+    private int turns;
+    private int preDraws;
+    private int layouts;
+    private int displayCount;
+    private int hideCount;
+
+    private final ViewTreeObserver.OnPreDrawListener preDrawCounter = new ViewTreeObserver.OnPreDrawListener() {
+        @Override
+        public boolean onPreDraw() {
+            preDraws++;
+            return true;
+        }
+    };
+
+    private final ViewTreeObserver.OnGlobalLayoutListener layoutCounter = new ViewTreeObserver.OnGlobalLayoutListener() {
+        @Override
+        public void onGlobalLayout() {
+            layouts++;
+        }
+    };
+
+    private final ViewTooltip.ListenerDisplay displayCounter = new ViewTooltip.ListenerDisplay() {
+        @Override
+        public void onDisplay(View view) {
+            displayCount++;
+        }
+    };
+
+    private final ViewTooltip.ListenerHide hideCounter = new ViewTooltip.ListenerHide() {
+        @Override
+        public void onHide(View view) {
+            hideCount++;
+        }
+    };
+
+    private final Condition displayed = new Condition() {
+        @Override
+        public boolean isMet() {
+            return displayCount > 0;
+        }
+    };
+
+    private final Condition hidden = new Condition() {
+        @Override
+        public boolean isMet() {
+            return hideCount > 0;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+        content = new FrameLayout(activity);
+        activity.setContentView(content);
+        decorView = (ViewGroup) activity.getWindow().getDecorView();
+        looper = shadowOf(Looper.getMainLooper());
+        looper.idle();
+
+        decorView.getViewTreeObserver().addOnPreDrawListener(preDrawCounter);
+        decorView.getViewTreeObserver().addOnGlobalLayoutListener(layoutCounter);
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void showBeforeLayoutDisplaysWithinBudget() {
+        final View anchor = addAnchor();
+
+        resetCounters();
+        tooltip(anchor).animation(NO_ANIMATION).show();
+        runUntil(displayed);
+
+        assertTrue(turns + " looper turns from show() to onDisplay", turns <= MAX_LOOPER_TURNS_TO_DISPLAY);
+        assertTrue(preDraws + " frames from show() to onDisplay", preDraws <= MAX_FRAMES_TO_DISPLAY);
+        assertTrue(layouts + " layout passes from show() to onDisplay", layouts <= MAX_LAYOUT_PASSES_TO_DISPLAY);
+    }
+
+    @Test
+    public void showOnLaidOutAnchorDisplaysWithoutWaiting() {
+        final View anchor = addAnchor();
+        looper.idle();
+
+        resetCounters();
+        tooltip(anchor).animation(NO_ANIMATION).show();
+
+        assertEquals(1, displayCount);
+    }
+
+    @Test
+    public void fadeDisplaysWhenItEnds() {
+        final View anchor = addAnchor();
+        looper.idle();
+
+        resetCounters();
+        final long start = SystemClock.uptimeMillis();
+        tooltip(anchor).animation(new ViewTooltip.FadeTooltipAnimation(FADE_MS)).show();
+        runUntil(displayed);
+        final long elapsed = SystemClock.uptimeMillis() - start;
+
+        assertTrue(elapsed + "ms from show() to onDisplay", elapsed <= FADE_MS + MAX_DISPLAY_DELAY_AFTER_FADE_MS);
+        assertTrue(layouts + " layout passes during the fade", layouts <= MAX_LAYOUT_PASSES_DURING_FADE);
+    }
+
+    @Test
+    public void onDrawDoesNotAllocate() {
+        final View anchor = addAnchor();
+        looper.idle();
+        final ViewTooltip.TooltipView tooltipView = tooltip(anchor)
+                .animation(NO_ANIMATION)
+                .withShadow(true)
+                .border(Color.BLACK, 2)
+                .show();
+        looper.idle();
+
+        final CountingCanvas canvas = new CountingCanvas();
+        final Runnable draw = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < DRAWS; i++) {
+                    tooltipView.onDraw(canvas);
+                }
+            }
+        };
+        //the first draws resolve the paints
+        draw.run();
+        canvas.paths = 0;
+        final long allocated = new AllocationCounter().measure(draw);
+
+        assertEquals("bubble and border drawn on each onDraw", 2 * DRAWS, canvas.paths);
+        assertTrue(allocated + " bytes allocated by " + DRAWS + " onDraw", allocated <= MAX_DRAW_ALLOCATED_BYTES);
+    }
+
+    @Test
+    public void closeNowLeavesNothingBehind() {
+        final View anchor = addAnchor();
+        looper.idle();
+        final Baseline baseline = new Baseline(anchor);
+
+        final WeakReference<ViewTooltip.TooltipView> tooltipView = showThen(anchor, NO_ANIMATION, false);
+
+        baseline.assertRestored(anchor);
+        assertCollected(tooltipView);
+
+        //nothing scheduled by the closed tooltip runs later
+        resetCounters();
+        looper.idleFor(AUTO_HIDE_MS * 2, TimeUnit.MILLISECONDS);
+        assertEquals(0, hideCount);
+        assertEquals(baseline.children, decorView.getChildCount());
+    }
+
+    @Test
+    public void removeLeavesNothingBehind() {
+        final View anchor = addAnchor();
+        looper.idle();
+        final Baseline baseline = new Baseline(anchor);
+
+        final WeakReference<ViewTooltip.TooltipView> tooltipView = showThen(anchor, new ViewTooltip.FadeTooltipAnimation(FADE_MS), true);
+
+        baseline.assertRestored(anchor);
+        assertCollected(tooltipView);
+
+        resetCounters();
+        looper.idleFor(AUTO_HIDE_MS * 2, TimeUnit.MILLISECONDS);
+        assertEquals(0, hideCount);
+        assertEquals(baseline.children, decorView.getChildCount());
+    }
+
+    /**
+     * Displays an auto hidden tooltip then closes it before it expires, no reference to it is kept here
+     */
+    private WeakReference<ViewTooltip.TooltipView> showThen(View anchor, ViewTooltip.TooltipAnimation animation, boolean remove) {
+        resetCounters();
+        final ViewTooltip tooltip = tooltip(anchor)
+                .animation(animation)
+                .autoHide(true, AUTO_HIDE_MS);
+        final ViewTooltip.TooltipView tooltipView = tooltip.show();
+        runUntil(displayed);
+        if (remove) {
+            tooltipView.remove();
+            runUntil(hidden);
+        } else {
+            tooltip.closeNow();
+        }
+        return new WeakReference<>(tooltipView);
+    }
+
+    private ViewTooltip tooltip(View anchor) {
+        return ViewTooltip.on(activity, anchor)
+                .text("tooltip")
+                .position(ViewTooltip.Position.BOTTOM)
+                .onDisplay(displayCounter)
+                .onHide(hideCounter);
+    }
+
+    private View addAnchor() {
+        final View anchor = new View(activity);
+        content.addView(anchor, new FrameLayout.LayoutParams(100, 50, Gravity.CENTER));
+        return anchor;
+    }
+
+    private void resetCounters() {
+        turns = 0;
+        preDraws = 0;
+        layouts = 0;
+        displayCount = 0;
+        hideCount = 0;
+    }
+
+    /**
+     * Runs the main looper one message at a time, moving the clock a frame forward whenever nothing is due
+     */
+    private void runUntil(Condition condition) {
+        for (int steps = 0; !condition.isMet(); steps++) {
+            assertTrue("still waiting after " + MAX_STEPS + " steps", steps < MAX_STEPS);
+            if (looper.isIdle()) {
+                SystemClock.setCurrentTimeMillis(SystemClock.uptimeMillis() + FRAME_MS);
+            } else {
+                looper.runOneTask();
+                turns++;
+            }
+        }
+    }
+
+    private static void assertCollected(WeakReference<?> reference) {
+        for (int i = 0; i < 10 && reference.get() != null; i++) {
+            Runtime.getRuntime().gc();
+        }
+        assertNull("still referenced once removed, by a listener or a pending runnable", reference.get());
+    }
+
+    private static int countAttachListeners(View view) {
+        final Object listenerInfo = ReflectionHelpers.getField(view, "mListenerInfo");
+        if (listenerInfo == null) {
+            return 0;
+        }
+        final Collection<?> listeners = ReflectionHelpers.getField(listenerInfo, "mOnAttachStateChangeListeners");
+        return listeners != null ? listeners.size() : 0;
+    }
+
+    /**
+     * What the window, the anchor and the lifecycle hold before a tooltip is shown
+     */
+    private final class Baseline {
+        final int children;
+        final int liveCount;
+        final int attachListeners;
+        final int lifecycleObservers;
+
+        Baseline(View anchor) {
+            children = decorView.getChildCount();
+            liveCount = TooltipMetrics.getLiveCount();
+            attachListeners = countAttachListeners(anchor);
+            lifecycleObservers = ((LifecycleRegistry) activity.getLifecycle()).getObserverCount();
+        }
+
+        void assertRestored(View anchor) {
+            assertEquals("views left in the window", children, decorView.getChildCount());
+            assertEquals("tooltips still counted as attached", liveCount, TooltipMetrics.getLiveCount());
+            assertEquals("listeners left on the anchor", attachListeners, countAttachListeners(anchor));
+            assertEquals("observers left on the lifecycle", lifecycleObservers, ((LifecycleRegistry) activity.getLifecycle()).getObserverCount());
+        }
+    }
+
+    /**
+     * Only counts the paths, nothing reaches the drawing shadows
+     */
+    private static final class CountingCanvas extends Canvas {
+        int paths;
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            paths++;
+        }
+    }
+}
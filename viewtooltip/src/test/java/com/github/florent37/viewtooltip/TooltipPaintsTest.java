@@ -0,0 +1,137 @@
+package com.github.florent37.viewtooltip;
+
+import android.graphics.Paint;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * The entries are static, each test uses its own colors and releases what it acquires
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TooltipPaintsTest {
+
+    @Test
+    public void sameFillIsShared() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireFill(0xff000001, 0xff000001, 0, 100, 4, 0xff888888);
+        final TooltipPaints.Entry second = TooltipPaints.acquireFill(0xff000001, 0xff000001, 0, 100, 4, 0xff888888);
+
+        assertSame(first, second);
+        assertEquals(Paint.Style.FILL, first.paint.getStyle());
+        assertEquals(0xff000001, first.paint.getColor());
+
+        TooltipPaints.release(first);
+        TooltipPaints.release(second);
+    }
+
+    @Test
+    public void differentFillsAreNotShared() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireFill(0xff000002, 0xff000002, 0, 100, 4, 0xff888888);
+        final TooltipPaints.Entry otherColor = TooltipPaints.acquireFill(0xff000003, 0xff000003, 0, 100, 4, 0xff888888);
+        final TooltipPaints.Entry otherShadow = TooltipPaints.acquireFill(0xff000002, 0xff000002, 0, 100, 8, 0xff888888);
+
+        assertNotSame(first, otherColor);
+        assertNotSame(first, otherShadow);
+
+        TooltipPaints.release(first);
+        TooltipPaints.release(otherColor);
+        TooltipPaints.release(otherShadow);
+    }
+
+    @Test
+    public void plainFillIgnoresTheBubbleBounds() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireFill(0xff000004, 0xff000004, 0, 100, 0, 0);
+        final TooltipPaints.Entry second = TooltipPaints.acquireFill(0xff000004, 0xff000004, 10, 300, 0, 0);
+
+        assertSame(first, second);
+        assertNull(first.paint.getShader());
+
+        TooltipPaints.release(first);
+        TooltipPaints.release(second);
+    }
+
+    @Test
+    public void gradientDependsOnTheBubbleBounds() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireFill(0xff000005, 0xff0000f5, 0, 100, 0, 0);
+        final TooltipPaints.Entry sameBounds = TooltipPaints.acquireFill(0xff000005, 0xff0000f5, 0, 100, 0, 0);
+        final TooltipPaints.Entry otherBounds = TooltipPaints.acquireFill(0xff000005, 0xff0000f5, 0, 300, 0, 0);
+
+        assertSame(first, sameBounds);
+        assertNotSame(first, otherBounds);
+        assertNotNull(first.paint.getShader());
+
+        TooltipPaints.release(first);
+        TooltipPaints.release(sameBounds);
+        TooltipPaints.release(otherBounds);
+    }
+
+    @Test
+    public void shadowColorIgnoredWithoutShadow() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireFill(0xff000006, 0xff000006, 0, 100, 0, 0xff111111);
+        final TooltipPaints.Entry second = TooltipPaints.acquireFill(0xff000006, 0xff000006, 0, 100, 0, 0xff222222);
+
+        assertSame(first, second);
+
+        TooltipPaints.release(first);
+        TooltipPaints.release(second);
+    }
+
+    @Test
+    public void borderIsNotAFill() {
+        final TooltipPaints.Entry fill = TooltipPaints.acquireFill(0xff000007, 0xff000007, 0, 0, 0, 0);
+        final TooltipPaints.Entry border = TooltipPaints.acquireBorder(0xff000007, 2);
+        final TooltipPaints.Entry sameBorder = TooltipPaints.acquireBorder(0xff000007, 2);
+        final TooltipPaints.Entry widerBorder = TooltipPaints.acquireBorder(0xff000007, 4);
+
+        assertNotSame(fill, border);
+        assertSame(border, sameBorder);
+        assertNotSame(border, widerBorder);
+        assertEquals(Paint.Style.STROKE, border.paint.getStyle());
+        assertEquals(2, border.paint.getStrokeWidth(), 0);
+
+        TooltipPaints.release(fill);
+        TooltipPaints.release(border);
+        TooltipPaints.release(sameBorder);
+        TooltipPaints.release(widerBorder);
+    }
+
+    @Test
+    public void entryLivesWhileReferenced() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireBorder(0xff000008, 1);
+        final TooltipPaints.Entry second = TooltipPaints.acquireBorder(0xff000008, 1);
+
+        TooltipPaints.release(first);
+        final TooltipPaints.Entry third = TooltipPaints.acquireBorder(0xff000008, 1);
+
+        assertSame(second, third);
+
+        TooltipPaints.release(second);
+        TooltipPaints.release(third);
+    }
+
+    @Test
+    public void entryIsForgottenWithItsLastReference() {
+        final TooltipPaints.Entry first = TooltipPaints.acquireBorder(0xff000009, 1);
+        TooltipPaints.release(first);
+
+        final TooltipPaints.Entry second = TooltipPaints.acquireBorder(0xff000009, 1);
+
+        assertNotSame(first, second);
+
+        TooltipPaints.release(second);
+    }
+
+    @Test
+    public void releasingNothingIsIgnored() {
+        TooltipPaints.release(null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.florent37.viewtooltip;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TooltipPoolTest {
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+    }
+
+    @Test
+    public void poolIsInstalledOncePerActivity() {
+        final TooltipPool pool = TooltipPool.install(activity, 2);
+
+        assertSame(pool, TooltipPool.install(activity, 3));
+        assertSame(pool, TooltipPool.get(activity));
+        assertEquals(3, pool.getMaxSize());
+
+        controller.destroy();
+    }
+
+    @Test
+    public void stoppedActivityEmptiesThePool() {
+        final TooltipPool pool = TooltipPool.install(activity);
+        pool.release(pool.obtain(activity));
+        assertEquals(1, pool.size());
+
+        controller.pause().stop();
+
+        assertEquals(0, pool.size());
+        assertSame(pool, TooltipPool.get(activity));
+
+        controller.destroy();
+    }
+
+    @Test
+    public void destroyedActivityUninstallsThePool() {
+        final TooltipPool pool = TooltipPool.install(activity);
+        pool.release(pool.obtain(activity));
+
+        controller.pause().stop().destroy();
+
+        assertEquals(0, pool.size());
+        assertNull(TooltipPool.get(activity));
+    }
+}
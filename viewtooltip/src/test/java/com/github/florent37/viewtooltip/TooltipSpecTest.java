@@ -0,0 +1,154 @@
+package com.github.florent37.viewtooltip;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.view.Gravity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TooltipSpecTest {
+
+    @Test
+    public void defaultsAreTheTooltipDefaults() {
+        final TooltipSpec spec = new TooltipSpec.Builder().build();
+
+        assertEquals(ViewTooltip.Position.BOTTOM, spec.position);
+        assertEquals(ViewTooltip.ALIGN.CENTER, spec.align);
+        assertEquals(Color.parseColor("#1F7C82"), spec.color);
+        assertEquals(spec.color, spec.gradientEndColor);
+        assertEquals(30, spec.corner);
+        assertEquals(15, spec.arrowWidth);
+        assertEquals(15, spec.arrowHeight);
+        assertEquals(30, spec.paddingLeft);
+        assertEquals(20, spec.paddingTop);
+        assertEquals(30, spec.paddingRight);
+        assertEquals(30, spec.paddingBottom);
+        assertEquals(Color.WHITE, spec.textColor);
+        assertEquals(TooltipSpec.DEFAULT, spec.textSize, 0);
+        assertEquals(TooltipSpec.DEFAULT, spec.textGravity);
+        assertNull(spec.typeface);
+        assertTrue(spec.withShadow);
+        assertEquals(Color.TRANSPARENT, spec.borderColor);
+        assertTrue(spec.autoHide);
+        assertEquals(4000, spec.duration);
+        assertFalse(spec.clickToHide);
+    }
+
+    @Test
+    public void buildKeepsEveryValue() {
+        final TooltipSpec spec = new TooltipSpec.Builder()
+                .position(ViewTooltip.Position.LEFT)
+                .align(ViewTooltip.ALIGN.END)
+                .gradient(Color.RED, Color.BLUE)
+                .corner(12)
+                .arrowWidth(20)
+                .arrowHeight(10)
+                .arrowSourceMargin(3)
+                .arrowTargetMargin(4)
+                .distanceWithView(5)
+                .padding(1, 2, 3, 4)
+                .textColor(Color.BLACK)
+                .textSize(42)
+                .textGravity(Gravity.CENTER)
+                .withShadow(false)
+                .shadowColor(Color.GRAY)
+                .border(Color.GREEN, 2)
+                .autoHide(false, 1000)
+                .clickToHide(true)
+                .build();
+
+        assertEquals(ViewTooltip.Position.LEFT, spec.position);
+        assertEquals(ViewTooltip.ALIGN.END, spec.align);
+        assertEquals(Color.RED, spec.color);
+        assertEquals(Color.BLUE, spec.gradientEndColor);
+        assertEquals(12, spec.corner);
+        assertEquals(20, spec.arrowWidth);
+        assertEquals(10, spec.arrowHeight);
+        assertEquals(3, spec.arrowSourceMargin);
+        assertEquals(4, spec.arrowTargetMargin);
+        assertEquals(5, spec.distanceWithView);
+        assertEquals(1, spec.paddingLeft);
+        assertEquals(2, spec.paddingTop);
+        assertEquals(3, spec.paddingRight);
+        assertEquals(4, spec.paddingBottom);
+        assertEquals(Color.BLACK, spec.textColor);
+        assertEquals(42, spec.textSize, 0);
+        assertEquals(Gravity.CENTER, spec.textGravity);
+        assertFalse(spec.withShadow);
+        assertEquals(Color.GRAY, spec.shadowColor);
+        assertEquals(Color.GREEN, spec.borderColor);
+        assertEquals(2, spec.borderWidth, 0);
+        assertFalse(spec.autoHide);
+        assertEquals(1000, spec.duration);
+        assertTrue(spec.clickToHide);
+    }
+
+    @Test
+    public void colorEndsTheGradient() {
+        final TooltipSpec spec = new TooltipSpec.Builder()
+                .gradient(Color.RED, Color.BLUE)
+                .color(Color.GREEN)
+                .build();
+
+        assertEquals(Color.GREEN, spec.color);
+        assertEquals(Color.GREEN, spec.gradientEndColor);
+    }
+
+    @Test
+    public void newBuilderStartsFromTheSpec() {
+        final TooltipSpec spec = new TooltipSpec.Builder()
+                .position(ViewTooltip.Position.TOP)
+                .corner(12)
+                .padding(1, 2, 3, 4)
+                .build();
+
+        final TooltipSpec derived = spec.newBuilder().corner(8).build();
+
+        assertEquals(ViewTooltip.Position.TOP, derived.position);
+        assertEquals(8, derived.corner);
+        assertEquals(4, derived.paddingBottom);
+        //the original spec is never modified
+        assertEquals(12, spec.corner);
+    }
+
+    @Test
+    public void styleIsParsedOncePerTheme() {
+        final Context context = RuntimeEnvironment.application;
+
+        assertSame(TooltipSpec.fromStyle(context, 0), TooltipSpec.fromStyle(context, 0));
+        //a theme without viewTooltipStyle gets the default spec
+        assertSame(TooltipSpec.fromStyle(context, 0), TooltipSpec.fromTheme(context));
+    }
+
+    @Test
+    public void applyToConfiguresTheView() {
+        final ViewTooltip.TooltipView view = new ViewTooltip.TooltipView(RuntimeEnvironment.application);
+        final TooltipSpec spec = new TooltipSpec.Builder()
+                .position(ViewTooltip.Position.RIGHT)
+                .arrowWidth(20)
+                .arrowHeight(10)
+                .arrowSourceMargin(3)
+                .arrowTargetMargin(4)
+                .build();
+
+        spec.applyTo(view);
+
+        assertEquals(ViewTooltip.Position.RIGHT, view.getPosition());
+        assertEquals(20, view.getArrowWidth());
+        assertEquals(10, view.getArrowHeight());
+        assertEquals(3, view.getArrowSourceMargin());
+        assertEquals(4, view.getArrowTargetMargin());
+    }
+}
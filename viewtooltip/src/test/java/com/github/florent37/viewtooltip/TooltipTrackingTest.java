@@ -0,0 +1,120 @@
+package com.github.florent37.viewtooltip;
+
+import android.animation.Animator;
+import android.os.Looper;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * A tracked anchor moving on every frame only moves its tooltip
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class TooltipTrackingTest {
+
+    private static final int FRAMES = 10;
+    private static final int STEP = 10;
+
+    private static final ViewTooltip.TooltipAnimation NO_ANIMATION = new ViewTooltip.TooltipAnimation() {
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            animatorListener.onAnimationEnd(null);
+        }
+    };
+
+    private ActivityController<FragmentActivity> controller;
+    private ViewGroup decorView;
+    private View anchor;
+    private ViewTooltip.TooltipView tooltipView;
+    private int measures;
+
+    private final TooltipMetrics measureCounter = new TooltipMetrics() {
+        @Override
+        public void onMeasure(View tooltip, long duration) {
+            measures++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        final FragmentActivity activity = controller.get();
+        final FrameLayout content = new FrameLayout(activity);
+        activity.setContentView(content);
+        decorView = (ViewGroup) activity.getWindow().getDecorView();
+        anchor = new View(activity);
+        content.addView(anchor, new FrameLayout.LayoutParams(100, 50, Gravity.CENTER));
+        shadowOf(Looper.getMainLooper()).idle();
+
+        tooltipView = ViewTooltip.on(activity, anchor)
+                .text("tracked")
+                .position(ViewTooltip.Position.BOTTOM)
+                .trackAnchor(true)
+                .animation(NO_ANIMATION)
+                .autoHide(false, 0)
+                .metrics(measureCounter)
+                .show();
+        shadowOf(Looper.getMainLooper()).idle();
+        measures = 0;
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void movingAnchorKeepsTheMeasuredSize() {
+        final float startY = tooltipView.getTranslationY();
+        final int width = tooltipView.getMeasuredWidth();
+        final int height = tooltipView.getMeasuredHeight();
+
+        //the space left below the anchor changes on every frame
+        for (int i = 1; i <= FRAMES; i++) {
+            anchor.setTranslationY(i * STEP);
+            decorView.getViewTreeObserver().dispatchOnPreDraw();
+
+            assertEquals(startY + i * STEP, tooltipView.getTranslationY(), 0);
+        }
+
+        assertEquals("measure passes while tracking", 0, measures);
+        assertFalse("layout requested while tracking", tooltipView.isLayoutRequested());
+        assertEquals(width, tooltipView.getMeasuredWidth());
+        assertEquals(height, tooltipView.getMeasuredHeight());
+    }
+
+    @Test
+    public void changedContentIsMeasuredOnTheNextMove() {
+        tooltipView.setText("a tracked tooltip with a longer text", false);
+
+        anchor.setTranslationY(STEP);
+        decorView.getViewTreeObserver().dispatchOnPreDraw();
+
+        assertTrue("measure passes after a text change", measures > 0);
+    }
+}
@@ -0,0 +1,195 @@
+package com.github.florent37.viewtooltip;
+
+import android.animation.Animator;
+import android.animation.ValueAnimator;
+import android.os.Looper;
+import android.view.Gravity;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.fragment.app.FragmentActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Every enter or exit transition ends with exactly one callback, however it is interrupted
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class TooltipTransitionTest {
+
+    private ActivityController<FragmentActivity> controller;
+    private FragmentActivity activity;
+    private View anchor;
+    private final ManualAnimation animation = new ManualAnimation();
+
+    private int displayCount;
+    private int hideCount;
+
+    private final ViewTooltip.ListenerDisplay displayCounter = new ViewTooltip.ListenerDisplay() {
+        @Override
+        public void onDisplay(View view) {
+            displayCount++;
+        }
+    };
+
+    private final ViewTooltip.ListenerHide hideCounter = new ViewTooltip.ListenerHide() {
+        @Override
+        public void onHide(View view) {
+            hideCount++;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(FragmentActivity.class).setup();
+        activity = controller.get();
+        final FrameLayout content = new FrameLayout(activity);
+        activity.setContentView(content);
+        anchor = new View(activity);
+        content.addView(anchor, new FrameLayout.LayoutParams(100, 50, Gravity.CENTER));
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    @Test
+    public void enterEndsWithOneDisplay() {
+        show();
+
+        animation.enter.onAnimationEnd(null);
+        animation.enter.onAnimationEnd(null);
+
+        assertEquals(1, displayCount);
+    }
+
+    @Test
+    public void removeDuringEnterEndsTheEnterFirst() {
+        final ViewTooltip.TooltipView tooltipView = show();
+
+        tooltipView.remove();
+        assertEquals(1, displayCount);
+        assertEquals(1, animation.exits);
+
+        //the interrupted animator still reports its end
+        animation.enter.onAnimationEnd(null);
+        assertEquals(1, displayCount);
+
+        animation.exit.onAnimationEnd(null);
+        assertEquals(1, hideCount);
+        assertNull(tooltipView.getParent());
+    }
+
+    @Test
+    public void secondRemoveStartsNoExit() {
+        final ViewTooltip.TooltipView tooltipView = show();
+        animation.enter.onAnimationEnd(null);
+
+        tooltipView.remove();
+        tooltipView.remove();
+
+        assertEquals(1, animation.exits);
+        animation.exit.onAnimationEnd(null);
+        assertEquals(1, hideCount);
+    }
+
+    @Test
+    public void closeNowDuringExitHidesOnce() {
+        final ViewTooltip.TooltipView tooltipView = show();
+        animation.enter.onAnimationEnd(null);
+        tooltipView.remove();
+
+        tooltipView.closeNow();
+        animation.exit.onAnimationEnd(null);
+
+        assertEquals(1, hideCount);
+        assertNull(tooltipView.getParent());
+    }
+
+    @Test
+    public void closeNowDuringEnterCallsNoDisplay() {
+        final ViewTooltip.TooltipView tooltipView = show();
+
+        tooltipView.closeNow();
+        animation.enter.onAnimationEnd(null);
+
+        assertEquals(0, displayCount);
+        assertEquals(0, hideCount);
+        assertNull(tooltipView.getParent());
+    }
+
+    @Test
+    public void removeCancelsTheAnimatorOfTheEnter() {
+        final ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+        animator.setDuration(1000);
+        final ViewTooltip.TooltipView tooltipView = ViewTooltip.on(activity, anchor)
+                .text("transition")
+                .animation(new ViewTooltip.TooltipAnimation() {
+                    @Override
+                    public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+                        animator.addListener(animatorListener);
+                        animator.start();
+                    }
+
+                    @Override
+                    public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+                        animatorListener.onAnimationEnd(null);
+                    }
+                })
+                .autoHide(false, 0)
+                .onDisplay(displayCounter)
+                .show();
+
+        tooltipView.remove();
+
+        assertFalse(animator.isStarted());
+        assertEquals(1, displayCount);
+    }
+
+    private ViewTooltip.TooltipView show() {
+        return ViewTooltip.on(activity, anchor)
+                .text("transition")
+                .animation(animation)
+                .autoHide(false, 0)
+                .onDisplay(displayCounter)
+                .onHide(hideCounter)
+                .show();
+    }
+
+    /**
+     * Keeps the listeners, the test decides when the animations end
+     */
+    private static final class ManualAnimation implements ViewTooltip.TooltipAnimation {
+        Animator.AnimatorListener enter;
+        Animator.AnimatorListener exit;
+        int exits;
+
+        @Override
+        public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+            enter = animatorListener;
+        }
+
+        @Override
+        public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+            exit = animatorListener;
+            exits++;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.florent37.viewtooltip;
+
+import android.animation.Animator;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Repositioning, animating and drawing a tooltip must not allocate once warmed up
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class TooltipViewAllocationTest {
+
+    private static final int ITERATIONS = 1000;
+    private static final int SCREEN_WIDTH = 1080;
+
+    private final AllocationCounter counter = new AllocationCounter();
+    private final Rect anchor = new Rect();
+    private final CountingCanvas canvas = new CountingCanvas();
+    private ViewTooltip.TooltipView tooltipView;
+
+    @Before
+    public void setUp() {
+        tooltipView = new ViewTooltip.TooltipView(RuntimeEnvironment.application);
+        tooltipView.setText("tooltip");
+        tooltipView.setAutoHide(false);
+        tooltipView.setTooltipAnimation(new ViewTooltip.TooltipAnimation() {
+            @Override
+            public void animateEnter(View view, Animator.AnimatorListener animatorListener) {
+                animatorListener.onAnimationEnd(null);
+            }
+
+            @Override
+            public void animateExit(View view, Animator.AnimatorListener animatorListener) {
+                animatorListener.onAnimationEnd(null);
+            }
+        });
+        anchor.set(400, 800, 500, 850);
+        tooltipView.setup(anchor, SCREEN_WIDTH);
+    }
+
+    @Test
+    public void repositionDoesNotAllocate() {
+        final Runnable reposition = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    anchor.offsetTo(i % SCREEN_WIDTH, i);
+                    tooltipView.setupPosition(anchor);
+                }
+            }
+        };
+        reposition.run();
+
+        assertEquals("bytes allocated by " + ITERATIONS + " repositions", 0, counter.measure(reposition));
+    }
+
+    @Test
+    public void updateAnchorDoesNotAllocate() {
+        //laid out, so that the arrow is checked on each move. The tooltip follows the anchor without reaching an edge,
+        //the bubble is not rebuilt : the path shadows would allocate
+        tooltipView.layout(0, 0, tooltipView.getMeasuredWidth(), tooltipView.getMeasuredHeight());
+        final Runnable update = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    anchor.offsetTo(400 + i % 100, 800 + i % 100);
+                    tooltipView.updateAnchor(anchor, SCREEN_WIDTH);
+                }
+            }
+        };
+        update.run();
+
+        assertEquals("bytes allocated by " + ITERATIONS + " anchor updates", 0, counter.measure(update));
+    }
+
+    @Test
+    public void transitionsDoNotAllocate() {
+        final Runnable transitions = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    tooltipView.startEnterAnimation();
+                    tooltipView.startExitAnimation(null);
+                }
+            }
+        };
+        transitions.run();
+
+        assertEquals("bytes allocated by " + ITERATIONS + " enter and exit animations", 0, counter.measure(transitions));
+    }
+
+    @Test
+    public void drawDoesNotAllocate() {
+        final Runnable draw = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < ITERATIONS; i++) {
+                    tooltipView.onDraw(canvas);
+                }
+            }
+        };
+        draw.run();
+        canvas.paths = 0;
+
+        assertEquals("bytes allocated by " + ITERATIONS + " draws", 0, counter.measure(draw));
+        assertEquals("bubble drawn on each draw", ITERATIONS, canvas.paths);
+    }
+
+    /**
+     * Only counts the paths, nothing reaches the drawing shadows
+     */
+    private static final class CountingCanvas extends Canvas {
+        int paths;
+
+        @Override
+        public void drawPath(Path path, Paint paint) {
+            paths++;
+        }
+    }
+}
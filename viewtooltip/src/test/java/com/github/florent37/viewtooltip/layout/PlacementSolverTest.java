@@ -0,0 +1,91 @@
+package com.github.florent37.viewtooltip.layout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class PlacementSolverTest {
+
+    private static final int CONTAINER_WIDTH = 1080;
+    private static final int CONTAINER_HEIGHT = 1920;
+
+    private static final int[] BOTTOM_THEN_TOP = {TooltipLayoutEngine.BOTTOM, TooltipLayoutEngine.TOP};
+
+    private final PlacementSolver solver = new PlacementSolver();
+    private final TooltipLayoutEngine style = new TooltipLayoutEngine();
+
+    @Before
+    public void setUp() {
+        solver.reset(CONTAINER_WIDTH, CONTAINER_HEIGHT);
+    }
+
+    @Test
+    public void preferredPositionWinsWhenItFits() {
+        final int position = solver.solve(style, 490, 900, 590, 960, 200, 100, BOTTOM_THEN_TOP);
+
+        assertEquals(TooltipLayoutEngine.BOTTOM, position);
+        //centered under the anchor, the arrow adds to the height
+        assertEquals(440, solver.getX());
+        assertEquals(960, solver.getY());
+        assertEquals(200, solver.getWidth());
+        assertEquals(100 + 15, solver.getHeight());
+    }
+
+    @Test
+    public void fallsBackWhenThePreferredPositionOverflows() {
+        final int position = solver.solve(style, 490, 1850, 590, 1900, 200, 100, BOTTOM_THEN_TOP);
+
+        assertEquals(TooltipLayoutEngine.TOP, position);
+        assertEquals(1850 - 115, solver.getY());
+    }
+
+    @Test
+    public void fallsBackWhenThePreferredPositionCoversAnObstacle() {
+        solver.addObstacle(0, 960, CONTAINER_WIDTH, 1200);
+
+        final int position = solver.solve(style, 490, 900, 590, 960, 200, 100, BOTTOM_THEN_TOP);
+
+        assertEquals(TooltipLayoutEngine.TOP, position);
+    }
+
+    @Test
+    public void solvedTooltipsBecomeObstacles() {
+        assertEquals(TooltipLayoutEngine.BOTTOM, solver.solve(style, 490, 900, 590, 960, 200, 100, BOTTOM_THEN_TOP));
+        assertEquals(TooltipLayoutEngine.TOP, solver.solve(style, 490, 900, 590, 960, 200, 100, BOTTOM_THEN_TOP));
+    }
+
+    @Test
+    public void leastCoveredPositionWinsWhenNoneIsFree() {
+        solver.addObstacle(0, 0, CONTAINER_WIDTH, CONTAINER_HEIGHT);
+
+        //below : 300 x 115 covered, on the right : 315 x 100
+        final int position = solver.solve(style, 0, 900, 100, 960, 300, 100,
+                new int[]{TooltipLayoutEngine.BOTTOM, TooltipLayoutEngine.RIGHT});
+
+        assertEquals(TooltipLayoutEngine.RIGHT, position);
+        assertEquals(100, solver.getX());
+        assertEquals(880, solver.getY());
+        assertEquals(315, solver.getWidth());
+        assertEquals(100, solver.getHeight());
+    }
+
+    @Test
+    public void fallsBackAtTheTopEdge() {
+        //above : 100px out of the container
+        final int position = solver.solve(style, 490, 15, 590, 60, 200, 100,
+                new int[]{TooltipLayoutEngine.TOP, TooltipLayoutEngine.BOTTOM});
+
+        assertEquals(TooltipLayoutEngine.BOTTOM, position);
+        assertEquals(60, solver.getY());
+    }
+
+    @Test
+    public void resetForgetsTheObstacles() {
+        solver.addObstacle(0, 0, CONTAINER_WIDTH, CONTAINER_HEIGHT);
+
+        solver.reset(CONTAINER_WIDTH, CONTAINER_HEIGHT);
+
+        assertEquals(TooltipLayoutEngine.BOTTOM, solver.solve(style, 490, 900, 590, 960, 200, 100, BOTTOM_THEN_TOP));
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.florent37.viewtooltip.layout;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class SpatialGridTest {
+
+    private final SpatialGrid grid = new SpatialGrid();
+
+    @Before
+    public void setUp() {
+        grid.reset(1080, 1920);
+    }
+
+    @Test
+    public void emptyGridOverlapsNothing() {
+        assertEquals(0, grid.size());
+        assertEquals(0, grid.overlapArea(0, 0, 1080, 1920));
+    }
+
+    @Test
+    public void overlapIsTheSharedArea() {
+        grid.insert(0, 0, 100, 100);
+
+        assertEquals(50 * 50, grid.overlapArea(50, 50, 150, 150));
+        assertEquals(100 * 100, grid.overlapArea(0, 0, 1080, 1920));
+    }
+
+    @Test
+    public void touchingRectsDoNotOverlap() {
+        grid.insert(0, 0, 100, 100);
+
+        assertEquals(0, grid.overlapArea(100, 0, 200, 100));
+        assertEquals(0, grid.overlapArea(0, 100, 100, 200));
+    }
+
+    @Test
+    public void emptyQueryOverlapsNothing() {
+        grid.insert(0, 0, 100, 100);
+
+        assertEquals(0, grid.overlapArea(50, 50, 50, 80));
+        assertEquals(0, grid.overlapArea(50, 80, 80, 50));
+    }
+
+    @Test
+    public void rectOverSeveralCellsIsCountedOnce() {
+        //covers 3 x 3 cells of 256px, so does the query
+        grid.insert(200, 200, 600, 600);
+
+        assertEquals(400 * 400, grid.overlapArea(0, 0, 1080, 1920));
+        //and again with a new query stamp
+        assertEquals(400 * 400, grid.overlapArea(0, 0, 1080, 1920));
+    }
+
+    @Test
+    public void overlapsAddUp() {
+        grid.insert(0, 0, 100, 100);
+        grid.insert(900, 1800, 1000, 1900);
+
+        assertEquals(2 * 100 * 100, grid.overlapArea(0, 0, 1080, 1920));
+        assertEquals(50 * 100, grid.overlapArea(950, 0, 1080, 1920));
+    }
+
+    @Test
+    public void rectsOutsideOfTheContainerStillOverlap() {
+        grid.insert(-100, -100, 10, 10);
+        grid.insert(1070, 1910, 1200, 2000);
+
+        assertEquals(50 * 50, grid.overlapArea(-50, -50, 0, 0));
+        assertEquals(100 * 50, grid.overlapArea(1100, 1950, 1200, 2000));
+    }
+
+    @Test
+    public void growsPastItsInitialCapacity() {
+        //more rects than the initial arrays, all in the same cell
+        for (int i = 0; i < 100; i++) {
+            grid.insert(i, 0, i + 1, 10);
+        }
+
+        assertEquals(100, grid.size());
+        assertEquals(100 * 10, grid.overlapArea(0, 0, 256, 256));
+        assertEquals(10 * 10, grid.overlapArea(90, 0, 256, 256));
+    }
+
+    @Test
+    public void resetForgetsTheRects() {
+        grid.insert(0, 0, 100, 100);
+
+        grid.reset(1080, 1920);
+
+        assertEquals(0, grid.size());
+        assertEquals(0, grid.overlapArea(0, 0, 1080, 1920));
+    }
+
+    @Test
+    public void resetToALargerContainer() {
+        grid.reset(256, 256);
+        grid.insert(0, 0, 100, 100);
+
+        grid.reset(2048, 2048);
+        grid.insert(1500, 1500, 1600, 1600);
+
+        assertEquals(1, grid.size());
+        assertEquals(100 * 100, grid.overlapArea(0, 0, 2048, 2048));
+        assertEquals(0, grid.overlapArea(0, 0, 256, 256));
+    }
+}
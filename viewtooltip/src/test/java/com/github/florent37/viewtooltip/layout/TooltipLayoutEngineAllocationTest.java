@@ -0,0 +1,81 @@
+package com.github.florent37.viewtooltip.layout;
+
+import com.github.florent37.viewtooltip.AllocationCounter;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Repositioning and drawing a tooltip runs on every frame of a tracked anchor, it must not allocate
+ */
+public class TooltipLayoutEngineAllocationTest {
+
+    private static final int ITERATIONS = 10000;
+
+    private final AllocationCounter counter = new AllocationCounter();
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+    private final RecordingPathSink sink = new RecordingPathSink();
+
+    private final Runnable reposition = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = 0; i < ITERATIONS; i++) {
+                final int position = i & 3;
+                engine.setPosition(position);
+                engine.setAlign(i % 3);
+                final int anchorLeft = i % 1080;
+                engine.clampAnchor(anchorLeft, anchorLeft + 100, 1080, 400);
+                engine.place(engine.getAnchorLeft(), 800, engine.getAnchorRight(), 900, 400, 200);
+                engine.clampVertically(1920, 200);
+                sink.reset();
+                engine.buildBubble(sink, 4, 4, 392, 192, 200);
+            }
+        }
+    };
+
+    @Test
+    public void repositionAndBubbleDoNotAllocate() {
+        //warms up class loading and the JIT
+        reposition.run();
+
+        assertEquals("bytes allocated by " + ITERATIONS + " repositions", 0, counter.measure(reposition));
+    }
+
+    /**
+     * Stands for the Path of the TooltipView, reused between frames
+     */
+    static final class RecordingPathSink implements PathSink {
+        final float[] points = new float[64];
+        int count;
+
+        void reset() {
+            count = 0;
+        }
+
+        @Override
+        public void moveTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+            add(x, y);
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+            add(x1, y1);
+            add(x2, y2);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private void add(float x, float y) {
+            points[count++] = x;
+            points[count++] = y;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.github.florent37.viewtooltip.layout;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TooltipLayoutEngineTest {
+
+    private static final float DELTA = 0.001f;
+
+    private static final int CONTAINER_WIDTH = 1080;
+    private static final int CONTAINER_HEIGHT = 1920;
+
+    private final TooltipLayoutEngine engine = new TooltipLayoutEngine();
+
+    private final PathSink sink = new PathSink() {
+        @Override
+        public void moveTo(float x, float y) {
+        }
+
+        @Override
+        public void lineTo(float x, float y) {
+        }
+
+        @Override
+        public void quadTo(float x1, float y1, float x2, float y2) {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Test
+    public void clampAnchorShiftsLeftAtTheRightEdge() {
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        engine.setAlign(TooltipLayoutEngine.ALIGN_START);
+
+        //centered on 1030, a 400px tooltip overflows by 150px
+        engine.clampAnchor(1000, 1060, CONTAINER_WIDTH, 400);
+
+        assertEquals(850, engine.getAnchorLeft());
+        assertEquals(910, engine.getAnchorRight());
+        assertEquals(TooltipLayoutEngine.ALIGN_CENTER, engine.getAlign());
+    }
+
+    @Test
+    public void clampAnchorShiftsRightAtTheLeftEdge() {
+        engine.setPosition(TooltipLayoutEngine.TOP);
+        engine.setAlign(TooltipLayoutEngine.ALIGN_END);
+
+        //centered on 30, a 400px tooltip overflows by 170px
+        engine.clampAnchor(0, 60, CONTAINER_WIDTH, 400);
+
+        assertEquals(170, engine.getAnchorLeft());
+        assertEquals(230, engine.getAnchorRight());
+        assertEquals(TooltipLayoutEngine.ALIGN_CENTER, engine.getAlign());
+    }
+
+    @Test
+    public void clampAnchorKeepsTheShiftedAnchorInsideTheContainer() {
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+
+        //anchor half out of the container on each side
+        engine.clampAnchor(-50, 50, CONTAINER_WIDTH, 40);
+        assertEquals(0, engine.getAnchorLeft());
+        assertEquals(70, engine.getAnchorRight());
+
+        engine.clampAnchor(1030, 1130, CONTAINER_WIDTH, 40);
+        assertEquals(1010, engine.getAnchorLeft());
+        assertEquals(CONTAINER_WIDTH, engine.getAnchorRight());
+    }
+
+    @Test
+    public void clampAnchorLeavesAFittingTooltipAlone() {
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        engine.setAlign(TooltipLayoutEngine.ALIGN_START);
+
+        engine.clampAnchor(400, 500, CONTAINER_WIDTH, 400);
+
+        assertEquals(400, engine.getAnchorLeft());
+        assertEquals(500, engine.getAnchorRight());
+        assertEquals(TooltipLayoutEngine.ALIGN_START, engine.getAlign());
+    }
+
+    @Test
+    public void clampAnchorIgnoresHorizontalPositions() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+
+        engine.clampAnchor(1000, 1060, CONTAINER_WIDTH, 400);
+
+        assertEquals(1000, engine.getAnchorLeft());
+        assertEquals(1060, engine.getAnchorRight());
+    }
+
+    @Test
+    public void availableWidthBesideTheAnchor() {
+        engine.setDistanceWithView(10);
+
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+        assertEquals(500 - TooltipLayoutEngine.MARGIN_SCREEN_BORDER_TOOLTIP - 10, engine.getAvailableWidth(500, 600, CONTAINER_WIDTH));
+
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        assertEquals(CONTAINER_WIDTH - 600 - TooltipLayoutEngine.MARGIN_SCREEN_BORDER_TOOLTIP - 10, engine.getAvailableWidth(500, 600, CONTAINER_WIDTH));
+
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        assertEquals(CONTAINER_WIDTH, engine.getAvailableWidth(500, 600, CONTAINER_WIDTH));
+    }
+
+    @Test
+    public void availableWidthIsClampedToZero() {
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+        assertEquals(0, engine.getAvailableWidth(20, 80, CONTAINER_WIDTH));
+
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        assertEquals(0, engine.getAvailableWidth(1000, 1070, CONTAINER_WIDTH));
+    }
+
+    @Test
+    public void clampVerticallyMovesTheArrowBackToTheAnchor() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+
+        //centered on an anchor from 20 to 60, a 200px tooltip starts 60px above the container
+        engine.place(100, 20, 200, 60, 300, 200);
+        assertEquals(-60, engine.getY());
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+        assertEquals(0, engine.getY());
+
+        engine.buildBubble(sink, 0, 0, 300, 200, 0);
+        //the anchor center, 40px from the top of the tooltip
+        assertEquals(40, engine.getArrowVertex(3), DELTA);
+    }
+
+    @Test
+    public void clampVerticallyKeepsTheArrowOffTheCorners() {
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+
+        //centered on an anchor from 1880 to 1920, moved 80px up
+        engine.place(500, 1880, 600, 1920, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+        assertEquals(CONTAINER_HEIGHT - 200, engine.getY());
+
+        engine.buildBubble(sink, 0, 0, 300, 200, 0);
+        //180 would point at the anchor, the arrow stops half a corner and an arrow width above the bottom
+        assertEquals(200 - 30 / 2f - 15, engine.getArrowVertex(3), DELTA);
+    }
+
+    @Test
+    public void clampVerticallyIgnoresVerticalPositions() {
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+
+        engine.place(100, 1800, 200, 1900, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+
+        assertEquals(1900, engine.getY());
+    }
+
+    @Test
+    public void placeResetsThePreviousShift() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        engine.place(100, 20, 200, 60, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+
+        engine.place(100, 500, 200, 540, 300, 200);
+        engine.buildBubble(sink, 0, 0, 300, 200, 0);
+
+        assertEquals(100, engine.getArrowVertex(3), DELTA);
+    }
+
+    @Test
+    public void newShiftIsReportedUntilTheBubbleIsRebuilt() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        engine.place(100, 20, 200, 60, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+        engine.buildBubble(sink, 0, 0, 300, 200, 0);
+        assertEquals(60, engine.getShiftY());
+        assertEquals(60, engine.getBubbleShiftY());
+
+        //the anchor scrolls 5px up, the tooltip stays at the top of the container
+        engine.place(100, 15, 200, 55, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+        assertEquals(0, engine.getY());
+        assertEquals(65, engine.getShiftY());
+        assertEquals(60, engine.getBubbleShiftY());
+
+        engine.buildBubble(sink, 0, 0, 300, 200, 0);
+        assertEquals(65, engine.getBubbleShiftY());
+        //the new anchor center, 35px from the top of the tooltip
+        assertEquals(35, engine.getArrowVertex(3), DELTA);
+    }
+
+    @Test
+    public void bottomArrowPointsUpAtTheAnchor() {
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+
+        assertArrow(105, 15, 120, 0, 135, 15);
+    }
+
+    @Test
+    public void topArrowPointsDownAtTheAnchor() {
+        engine.setPosition(TooltipLayoutEngine.TOP);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+
+        assertArrow(135, 185, 120, 200, 105, 185);
+    }
+
+    @Test
+    public void leftArrowPointsRightAtTheAnchor() {
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+
+        assertArrow(285, 85, 300, 100, 285, 115);
+    }
+
+    @Test
+    public void rightArrowPointsLeftAtTheAnchor() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+
+        assertArrow(15, 115, 0, 100, 15, 85);
+    }
+
+    @Test
+    public void arrowMarginsMoveTheTipAndTheBase() {
+        engine.setArrowSourceMargin(4);
+        engine.setArrowTargetMargin(10);
+
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertArrow(109, 15, 130, 0, 139, 15);
+
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertArrow(285, 81, 300, 90, 285, 111);
+    }
+
+    @Test
+    public void marginsInsetTheBubbleExceptOnTheArrowSide() {
+        engine.setMargin(1, 2, 3, 4);
+
+        engine.setPosition(TooltipLayoutEngine.BOTTOM);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertBubble(1, 15, 297, 196);
+
+        engine.setPosition(TooltipLayoutEngine.TOP);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertBubble(1, 2, 297, 185);
+
+        engine.setPosition(TooltipLayoutEngine.LEFT);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertBubble(1, 2, 285, 196);
+
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertBubble(15, 2, 297, 196);
+    }
+
+    @Test
+    public void resetEngineBehavesLikeANewOne() {
+        engine.setPosition(TooltipLayoutEngine.RIGHT);
+        engine.setArrowWidth(40);
+        engine.setMargin(1, 2, 3, 4);
+        engine.place(100, 20, 200, 60, 300, 200);
+        engine.clampVertically(CONTAINER_HEIGHT, 200);
+
+        engine.reset();
+
+        assertEquals(TooltipLayoutEngine.BOTTOM, engine.getPosition());
+        assertEquals(TooltipLayoutEngine.ALIGN_CENTER, engine.getAlign());
+        assertEquals(0, engine.getShiftY());
+        engine.buildBubble(sink, 0, 0, 300, 200, 120);
+        assertArrow(105, 15, 120, 0, 135, 15);
+        assertBubble(0, 15, 300, 200);
+    }
+
+    private void assertArrow(float startX, float startY, float tipX, float tipY, float endX, float endY) {
+        assertEquals(startX, engine.getArrowVertex(0), DELTA);
+        assertEquals(startY, engine.getArrowVertex(1), DELTA);
+        assertEquals(tipX, engine.getArrowVertex(2), DELTA);
+        assertEquals(tipY, engine.getArrowVertex(3), DELTA);
+        assertEquals(endX, engine.getArrowVertex(4), DELTA);
+        assertEquals(endY, engine.getArrowVertex(5), DELTA);
+    }
+
+    private void assertBubble(float left, float top, float right, float bottom) {
+        assertEquals(left, engine.getBubbleLeft(), DELTA);
+        assertEquals(top, engine.getBubbleTop(), DELTA);
+        assertEquals(right, engine.getBubbleRight(), DELTA);
+        assertEquals(bottom, engine.getBubbleBottom(), DELTA);
+    }
+}